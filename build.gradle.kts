@@ -1,5 +1,6 @@
 plugins {
     id("com.gradleup.shadow") version "8.3.1"
+    id("me.champeau.jmh") version "0.7.2"
     java
 }
 
@@ -20,12 +21,27 @@ dependencies {
     implementation("org.incendo", "cloud-annotations", "2.0.0")
     implementation("io.github.java-diff-utils", "java-diff-utils", "4.5")
     implementation("org.spongepowered", "configurate-yaml", "4.1.2")
+
+    jmh("io.papermc.paper", "paper-api", "1.21.4-R0.1-SNAPSHOT")
+
+    testImplementation("io.papermc.paper", "paper-api", "1.21.4-R0.1-SNAPSHOT")
+    testImplementation(platform("org.junit:junit-bom:5.11.3"))
+    testImplementation("org.junit.jupiter", "junit-jupiter")
+    testImplementation("org.mockito", "mockito-core", "5.14.2")
+    testRuntimeOnly("org.junit.platform", "junit-platform-launcher")
 }
 
 java {
     toolchain.languageVersion.set(JavaLanguageVersion.of(21))
 }
 
+jmh {
+    jmhVersion.set("1.37")
+    benchmarkMode.add("thrpt")
+    profilers.add("gc")
+    humanOutputFile.set(layout.buildDirectory.file("reports/jmh/human.txt"))
+}
+
 tasks {
     shadowJar {
         dependencies {
@@ -49,6 +65,10 @@ tasks {
         dependsOn(shadowJar)
     }
 
+    test {
+        useJUnitPlatform()
+    }
+
     withType<ProcessResources> {
         filteringCharset = "UTF-8"
         filesMatching("plugin.yml") {
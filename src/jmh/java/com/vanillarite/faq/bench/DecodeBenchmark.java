@@ -0,0 +1,79 @@
+package com.vanillarite.faq.bench;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.vanillarite.faq.storage.History;
+import com.vanillarite.faq.storage.Topic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Turning a Supabase response body into records, via a Gson tree and via the streaming reader. */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DecodeBenchmark {
+  @Param({"100", "1000", "10000"})
+  public int topics;
+
+  private String topicsBody;
+  private String historyBody;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    var list = SyntheticFaq.topics(topics);
+    topicsBody = SyntheticFaq.topicsJson(list).toString();
+    historyBody = SyntheticFaq.historyJson(list).toString();
+  }
+
+  @Benchmark
+  public List<Topic> topicFromJson() {
+    JsonArray array = JsonParser.parseString(topicsBody).getAsJsonArray();
+    var out = new ArrayList<Topic>(array.size());
+    array.forEach(json -> out.add(Topic.fromJson(json.getAsJsonObject())));
+    return out;
+  }
+
+  @Benchmark
+  public List<Topic> topicRead() throws IOException {
+    var out = new ArrayList<Topic>();
+    try (var reader = new JsonReader(new StringReader(topicsBody))) {
+      reader.beginArray();
+      while (reader.hasNext()) out.add(Topic.read(reader));
+      reader.endArray();
+    }
+    return out;
+  }
+
+  @Benchmark
+  public List<History> historyFromJson() {
+    JsonArray array = JsonParser.parseString(historyBody).getAsJsonArray();
+    var out = new ArrayList<History>(array.size());
+    array.forEach(json -> out.add(History.fromJson(json.getAsJsonObject())));
+    return out;
+  }
+
+  @Benchmark
+  public List<History> historyRead() throws IOException {
+    var out = new ArrayList<History>();
+    try (var reader = new JsonReader(new StringReader(historyBody))) {
+      reader.beginArray();
+      while (reader.hasNext()) out.add(History.read(reader));
+      reader.endArray();
+    }
+    return out;
+  }
+}
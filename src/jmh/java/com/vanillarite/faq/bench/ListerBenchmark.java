@@ -0,0 +1,48 @@
+package com.vanillarite.faq.bench;
+
+import com.vanillarite.faq.config.PrefixKind;
+import com.vanillarite.faq.storage.FaqSnapshot;
+import com.vanillarite.faq.text.list.FaqLister;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Set;
+
+/** A full, uncached {@code /faq} listing, i.e. what {@code ListingCache} pays once per snapshot. */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ListerBenchmark {
+  @Param({"100", "1000", "10000"})
+  public int topics;
+
+  private FaqSnapshot snapshot;
+  private final Set<String> visible = Set.of(SyntheticFaq.DEFAULT_GROUP, "staff");
+
+  @Setup(Level.Trial)
+  public void setup() {
+    snapshot = new FaqSnapshot(SyntheticFaq.topics(topics));
+  }
+
+  @Benchmark
+  public void run(Blackhole bh) {
+    new FaqLister(
+        PrefixKind.FAQ,
+        "faq",
+        SyntheticFaq.MESSAGES,
+        snapshot::visible,
+        visible::contains,
+        bh::consume,
+        null
+    ).run();
+  }
+}
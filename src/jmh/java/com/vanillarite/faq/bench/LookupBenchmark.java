@@ -0,0 +1,91 @@
+package com.vanillarite.faq.bench;
+
+import com.vanillarite.faq.storage.FaqSnapshot;
+import com.vanillarite.faq.storage.FuzzyMatch;
+import com.vanillarite.faq.storage.Topic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * What {@code FaqCache.findTopicOrAlias} and the {@code faqTopicsAll} suggestions do on every
+ * {@code /faq} and keystroke; both delegate straight to the snapshot.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LookupBenchmark {
+  @Param({"100", "1000", "10000"})
+  public int topics;
+
+  private FaqSnapshot snapshot;
+  private String[] exact;
+  private String[] prefixes;
+  private String[] typos;
+  private final Set<String> visible = Set.of(SyntheticFaq.DEFAULT_GROUP, "staff");
+  private static final String[] QUERIES = {"claim land", "discord", "how to vote for rank", "nether farm map"};
+  private int i = 0;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    var list = SyntheticFaq.topics(topics);
+    snapshot = new FaqSnapshot(list);
+    exact = new String[64];
+    prefixes = new String[64];
+    typos = new String[64];
+    for (int j = 0; j < exact.length; j++) {
+      var t = list.get((j * 7919) % list.size());
+      var name = t.alias().isEmpty() ? t.topic() : t.alias().get(0);
+      exact[j] = name.toUpperCase();
+      prefixes[j] = name.substring(0, Math.min(3, name.length()));
+      // Swap two letters in the middle, the most common kind of typo
+      var chars = name.toCharArray();
+      var k = chars.length / 2;
+      var c = chars[k];
+      chars[k] = chars[k - 1];
+      chars[k - 1] = c;
+      typos[j] = new String(chars);
+    }
+  }
+
+  @Benchmark
+  public Optional<Topic> findTopicOrAlias() {
+    return snapshot.lookup(exact[i++ & 63]);
+  }
+
+  @Benchmark
+  public Optional<Topic> findUniquePrefix() {
+    return snapshot.lookup(prefixes[i++ & 63]);
+  }
+
+  @Benchmark
+  public List<String> completeFaqTopicsAll() {
+    return snapshot.complete(prefixes[i++ & 63], visible::contains, 20);
+  }
+
+  @Benchmark
+  public List<FuzzyMatch> fuzzyTypo() {
+    return snapshot.fuzzy(typos[i++ & 63], 2, visible::contains, 3);
+  }
+
+  @Benchmark
+  public List<Topic> searchContent() {
+    return snapshot.search(QUERIES[i++ & 3], visible::contains, 8);
+  }
+
+  @Benchmark
+  public FaqSnapshot buildSnapshot() {
+    return new FaqSnapshot(snapshot.topics());
+  }
+}
@@ -0,0 +1,38 @@
+package com.vanillarite.faq.bench;
+
+import com.vanillarite.faq.storage.Topic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+
+/** {@code Topic.smartPreface}, as run for every uncached {@code /faq4u} preview. */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PrefaceBenchmark {
+  @Param({"100", "1000", "10000"})
+  public int topics;
+
+  private List<Topic> list;
+  private int i = 0;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    list = SyntheticFaq.topics(topics);
+  }
+
+  @Benchmark
+  public Topic.SmartPreface smartPreface() {
+    var t = list.get(i++ % list.size());
+    return t.smartPreface(3);
+  }
+}
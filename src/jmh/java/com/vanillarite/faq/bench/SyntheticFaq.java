@@ -0,0 +1,126 @@
+package com.vanillarite.faq.bench;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.vanillarite.faq.config.message.ListMessages;
+import com.vanillarite.faq.storage.Topic;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/** Deterministic fake FAQ tables, shaped roughly like the real one. */
+final class SyntheticFaq {
+  static final String DEFAULT_GROUP = "global";
+  static final String[] GROUPS = {DEFAULT_GROUP, DEFAULT_GROUP, DEFAULT_GROUP, "staff", "builders", "events"};
+  static final ListMessages MESSAGES = new ListMessages(
+      DEFAULT_GROUP,
+      "<b><light_purple><group> FAQ:<light_purple>",
+      new ListMessages.ListSection(
+          "<gold>Click on a topic to learn more about it!</gold>",
+          "<light_purple><b>•<reset> ",
+          "<black>[<aqua><topic></aqua>]</black>  ",
+          "<gold>Click here to learn more about <b><topic></b></gold>",
+          4),
+      new ListMessages.ListSection(
+          "<gold>Click on a topic to <b>broadcast it and educate others</b> about it!</gold>",
+          "<red><b>•<reset> ",
+          "<white>[<dark_aqua><topic></dark_aqua>]</white>  ",
+          "<gold>Click here to educate others about <b><topic></b></gold>",
+          4));
+
+  private static final String[] WORDS = {
+      "claim", "shop", "vote", "rank", "home", "warp", "trade", "pvp", "mail", "land", "chest", "spawn",
+      "nether", "end", "farm", "map", "rules", "discord", "tpa", "jobs"
+  };
+
+  private SyntheticFaq() {}
+
+  private static String name(Random random, int id) {
+    return WORDS[random.nextInt(WORDS.length)] + WORDS[random.nextInt(WORDS.length)] + id;
+  }
+
+  private static String body(Random random, int lines) {
+    var s = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      if (i > 0) s.append('\n');
+      s.append("<gray>Use <aqua>/").append(WORDS[random.nextInt(WORDS.length)]).append("</aqua> to ");
+      for (int w = 0; w < 10; w++) s.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+      s.append("</gray>");
+    }
+    return s.toString();
+  }
+
+  static List<Topic> topics(int count) {
+    var random = new Random(count);
+    var authors = new UUID[8];
+    for (int i = 0; i < authors.length; i++) authors[i] = new UUID(random.nextLong(), random.nextLong());
+    var now = Instant.parse("2024-01-01T00:00:00Z");
+
+    var topics = new ArrayList<Topic>(count);
+    for (int id = 1; id <= count; id++) {
+      var alias = new ArrayList<String>();
+      // Most topics have a couple of aliases, a few have many
+      var aliasCount = random.nextInt(10) == 0 ? 6 + random.nextInt(6) : random.nextInt(4);
+      for (int a = 0; a < aliasCount; a++) alias.add(name(random, id * 100 + a));
+      topics.add(new Topic(
+          id,
+          name(random, id),
+          body(random, 1 + random.nextInt(12)),
+          random.nextInt(3) == 0 ? body(random, 2) : null,
+          List.copyOf(alias),
+          GROUPS[random.nextInt(GROUPS.length)],
+          random.nextBoolean() ? new Topic.Pos(0, 0) : new Topic.Pos(1 + id / 4, 1 + id % 4),
+          authors[random.nextInt(authors.length)],
+          true,
+          now.minusSeconds(random.nextInt(10_000_000)),
+          now.minusSeconds(random.nextInt(1_000_000))
+      ));
+    }
+    return topics;
+  }
+
+  static JsonArray topicsJson(List<Topic> topics) {
+    var array = new JsonArray();
+    for (var t : topics) {
+      var json = new JsonObject();
+      json.addProperty("id", t.id());
+      json.addProperty("topic", t.topic());
+      json.addProperty("content", t.content());
+      json.addProperty("preface", t.preface());
+      var alias = new JsonArray();
+      t.alias().forEach(alias::add);
+      json.add("alias", alias);
+      json.addProperty("group", t.group());
+      json.add("pos", t.pos().toJson());
+      json.addProperty("author", t.author().toString());
+      json.addProperty("active", t.active());
+      json.addProperty("created_at", t.createdAt().toString());
+      json.addProperty("updated_at", t.updatedAt().toString());
+      array.add(json);
+    }
+    return array;
+  }
+
+  static JsonArray historyJson(List<Topic> topics) {
+    var array = new JsonArray();
+    var id = 0;
+    for (var t : topics) {
+      for (var field : List.of("TOPIC", "CONTENT", "PREFACE")) {
+        var json = new JsonObject();
+        json.addProperty("id", ++id);
+        json.addProperty("faq", t.id());
+        json.addProperty("author", t.author().toString());
+        json.addProperty("method", "PATCH");
+        json.addProperty("field", field);
+        json.addProperty("before", field.equals("TOPIC") ? t.topic() : t.preface());
+        json.addProperty("after", field.equals("TOPIC") ? t.topic() : t.content());
+        json.addProperty("timestamp", t.updatedAt().toString());
+        array.add(json);
+      }
+    }
+    return array;
+  }
+}
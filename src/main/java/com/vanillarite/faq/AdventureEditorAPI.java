@@ -19,9 +19,13 @@ public final class AdventureEditorAPI {
   private final URI root;
   private final HttpClient client;
 
-  public AdventureEditorAPI(final @NotNull URI root) {
+  public AdventureEditorAPI(final @NotNull URI root, final @NotNull HttpClient client) {
     this.root = root;
-    this.client = HttpClient.newHttpClient();
+    this.client = client;
+  }
+
+  public @NotNull URI root() {
+    return root;
   }
 
   public @NotNull CompletableFuture<String> startSession(
@@ -60,6 +64,11 @@ public final class AdventureEditorAPI {
                     new IOException("The result did not contain a token. (%s)".formatted(body)));
               }
               return null;
+            })
+        .exceptionally(
+            e -> {
+              result.completeExceptionally(e);
+              return null;
             });
 
     return result;
@@ -89,6 +98,11 @@ public final class AdventureEditorAPI {
                 result.complete(stringHttpResponse.body());
               }
               return null;
+            })
+        .exceptionally(
+            e -> {
+              result.completeExceptionally(e);
+              return null;
             });
 
     return result;
@@ -3,19 +3,25 @@ package com.vanillarite.faq;
 import org.incendo.cloud.annotation.specifier.Greedy;
 import org.incendo.cloud.annotations.Argument;
 import org.incendo.cloud.annotations.CommandDescription;
+import org.incendo.cloud.annotations.Flag;
 import org.incendo.cloud.annotations.Command;
 import org.incendo.cloud.annotations.Permission;
 import org.incendo.cloud.annotations.suggestion.Suggestions;
 import org.incendo.cloud.context.CommandContext;
-import com.github.difflib.algorithm.DiffException;
-import com.github.difflib.text.DiffRowGenerator;
 import com.vanillarite.faq.config.PrefixKind;
+import com.vanillarite.faq.metrics.Histogram;
+import com.vanillarite.faq.storage.FaqTransfer;
+import com.vanillarite.faq.storage.FuzzyMatch;
+import com.vanillarite.faq.storage.HistoryPage;
 import com.vanillarite.faq.storage.Manager;
 import com.vanillarite.faq.storage.Topic;
+import com.vanillarite.faq.storage.WriteResult;
 import com.vanillarite.faq.storage.supabase.Field;
 import com.vanillarite.faq.storage.supabase.Method;
 import com.vanillarite.faq.text.list.FaqLister;
+import com.vanillarite.faq.util.Prefixer;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
 import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
@@ -24,13 +30,18 @@ import org.bukkit.command.ConsoleCommandSender;
 import org.jetbrains.annotations.NotNull;
 import org.spongepowered.configurate.ConfigurateException;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.BiFunction;
-import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static com.vanillarite.faq.FaqPlugin.m;
 import static com.vanillarite.faq.util.DurationUtil.formatInstantToNow;
@@ -43,12 +54,28 @@ import static net.kyori.adventure.text.format.TextDecoration.ITALIC;
 import static net.kyori.adventure.text.format.TextDecoration.UNDERLINED;
 
 public class Commands {
+  private static final DateTimeFormatter EXPORT_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
   private final FaqPlugin plugin;
   private final Manager manager;
+  private final Histogram faqListTime;
+  private final Histogram faqTime;
+  private final Histogram faqSearchTime;
+  private final Histogram faqForYouListTime;
+  private final Histogram faqForYouTime;
+  private final Histogram editorListTime;
+  private final Histogram completionTime;
 
   public Commands(FaqPlugin plugin) {
     this.plugin = plugin;
-    this.manager = new Manager(plugin);
+    this.manager = plugin.manager();
+    var metrics = plugin.metrics();
+    this.faqListTime = metrics.histogram("faq_command_seconds", "command", "faq");
+    this.faqTime = metrics.histogram("faq_command_seconds", "command", "faq <topic>");
+    this.faqSearchTime = metrics.histogram("faq_command_seconds", "command", "faqsearch");
+    this.faqForYouListTime = metrics.histogram("faq_command_seconds", "command", "faq4u");
+    this.faqForYouTime = metrics.histogram("faq_command_seconds", "command", "faq4u <topic>");
+    this.editorListTime = metrics.histogram("faq_command_seconds", "command", "faqeditor");
+    this.completionTime = metrics.histogram("faq_command_seconds", "command", "<completion>");
   }
 
   @CommandDescription("List all FAQs")
@@ -57,19 +84,15 @@ public class Commands {
   private void commandFaqNoArgs(
       final @NotNull CommandSender sender
   ) {
-    var prefix = plugin.prefixFor(sender, PrefixKind.FAQ);
-    BiFunction<Topic, Component, Component> topicCallback = null;
-    if (sender.hasPermission("vfaq.manage.list")) {
-      topicCallback = (t, c) -> c.insertion("/faqeditor actions %s".formatted(t.id()));
+    long start = System.nanoTime();
+    try {
+      var prefix = plugin.prefixFor(sender, PrefixKind.FAQ);
+      manager.listingCache()
+          .lines(PrefixKind.FAQ, manager.groupResolver().visibleGroups(sender), sender.hasPermission("vfaq.manage.list"))
+          .forEach(prefix::response);
+    } finally {
+      faqListTime.recordSince(start);
     }
-    new FaqLister(
-        PrefixKind.FAQ,
-        "faq",
-        plugin, manager.cache(),
-        (g) -> sender.hasPermission("vfaq.group." + g),
-        prefix::response,
-        topicCallback
-    ).run();
   }
 
   @CommandDescription("View a topic from the FAQ")
@@ -79,23 +102,82 @@ public class Commands {
       final @NotNull CommandSender sender,
       final @NotNull @Argument(value = "topic", suggestions = "faqTopicsAll") @Greedy String topic
   ) {
+    long start = System.nanoTime();
+    try {
+      var prefix = plugin.prefixFor(sender, PrefixKind.FAQ);
+      var visible = manager.groupResolver().visibleGroups(sender);
+
+      var found = manager.cache().findTopicOrAlias(topic).filter(t -> visible.contains(t.group()));
+      if (found.isEmpty()) {
+        var matches = suggest(topic, visible::contains);
+        if (plugin.config().lookup().autoCorrect() && isOnlyNearMatch(matches)) {
+          found = Optional.of(matches.get(0).topic());
+        } else {
+          unknownTopic(prefix, matches, "faq");
+          return;
+        }
+      }
+      sender.sendMessage(manager.renderCache().body(found.get(), PrefixKind.FAQ));
+    } finally {
+      faqTime.recordSince(start);
+    }
+  }
+
+  @CommandDescription("Search the FAQ for topics mentioning some words")
+  @Command("faqsearch <words>")
+  @Permission("vfaq.faq")
+  private void commandFaqSearch(
+      final @NotNull CommandSender sender,
+      final @NotNull @Argument("words") @Greedy String words
+  ) {
+    long start = System.nanoTime();
+    try {
+      var section = plugin.config().messages().search();
+      var prefix = plugin.prefixFor(sender, PrefixKind.FAQ);
+      var visible = manager.groupResolver().visibleGroups(sender);
+
+      var results = manager.cache().get().search(words, visible::contains, section.maxResults());
+      if (results.isEmpty()) {
+        prefix.logged(section.noResults());
+        return;
+      }
+      prefix.response(section.header(), Placeholder.unparsed("query", words));
+      results.forEach(t -> prefix.response(
+          m.deserialize(section.result(), Placeholder.unparsed("topic", t.topic()))
+              .clickEvent(runCommand("/faq " + t.topic()))
+      ));
+    } finally {
+      faqSearchTime.recordSince(start);
+    }
+  }
+
+  private List<FuzzyMatch> suggest(String topic, Predicate<String> groupFilter) {
+    var lookup = plugin.config().lookup();
+    if (lookup.maxDistance() <= 0) return List.of();
+    // Two typos in a short name could turn it into nearly anything, so allow one per four letters
+    var maxDistance = Math.min(lookup.maxDistance(), Math.max(1, topic.length() / 4));
+    return manager.cache().get().fuzzy(topic, maxDistance, groupFilter, Math.max(2, lookup.maxSuggestions()));
+  }
+
+  /** Whether exactly one topic is a single typo away, so it's safe to just go with it. */
+  private static boolean isOnlyNearMatch(List<FuzzyMatch> matches) {
+    if (matches.isEmpty() || matches.get(0).distance() > 1) return false;
+    return matches.size() == 1 || matches.get(1).distance() > 1;
+  }
+
+  private void unknownTopic(Prefixer prefix, List<FuzzyMatch> matches, String command) {
     var section = plugin.config().messages();
-    var prefix = plugin.prefixFor(sender, PrefixKind.FAQ);
-    var defaultGroup = section.list().defaultGroup();
-
-    manager.cache().findTopicOrAlias(topic).ifPresentOrElse(
-        (t) -> {
-          if (t.group().equals(defaultGroup) || sender.hasPermission("vfaq.group." + t.group())) {
-            prefix.response(
-                section.header() + "<reset>\n\n" + t.content() + "\n",
-                Placeholder.unparsed("topic", t.topic())
-            );
-          } else {
-            prefix.logged(section.unknownTopic());
-          }
-        },
-        () -> prefix.logged(section.unknownTopic())
-    );
+    var shown = matches.stream().limit(plugin.config().lookup().maxSuggestions()).toList();
+    if (shown.isEmpty()) {
+      prefix.logged(section.unknownTopic());
+      return;
+    }
+
+    var suggestions = Component.join(JoinConfiguration.commas(true), shown.stream()
+        .map(match -> m.deserialize(section.suggestion(), Placeholder.unparsed("topic", match.name()))
+            .clickEvent(runCommand("/%s %s".formatted(command, match.name()))))
+        .toList());
+    prefix.logged(section.didYouMean(), Placeholder.component("suggestions", suggestions));
   }
 
   @CommandDescription("List all FAQs to show to someone else")
@@ -104,14 +186,13 @@ public class Commands {
   private void commandFaqForYouNoArgs(
       final @NotNull CommandSender sender
   ) {
-    var prefix = plugin.prefixFor(sender, PrefixKind.FAQ4U);
-    new FaqLister(
-        PrefixKind.FAQ4U,
-        "faq4u",
-        plugin, manager.cache(),
-        (g) -> false,
-        prefix::response
-    ).run();
+    long start = System.nanoTime();
+    try {
+      var prefix = plugin.prefixFor(sender, PrefixKind.FAQ4U);
+      manager.listingCache().lines(PrefixKind.FAQ4U, Set.of(), false).forEach(prefix::response);
+    } finally {
+      faqForYouListTime.recordSince(start);
+    }
   }
 
 
@@ -122,38 +203,30 @@ public class Commands {
       final @NotNull CommandSender sender,
       final @NotNull @Argument(value = "topic", suggestions = "faqTopicsDefault") @Greedy String topic
   ) {
-    var section = plugin.config().messages();
-    var prefix = plugin.prefixFor(sender, PrefixKind.FAQ);
-    var prefix4u = plugin.prefixFor(sender, PrefixKind.FAQ4U);
-    var defaultGroup = section.list().defaultGroup();
-
-    manager.cache().findTopicOrAlias(topic).ifPresentOrElse(
-        (t) -> {
-          if (!t.group().equals(defaultGroup)) {
-            prefix4u.response(text("This topic can't be used because it's locked behind a permission", RED));
-            return;
-          }
-          var preface = t.smartPreface(section.maxPreviewLines());
-          var keepReading = showText(
-              m.deserialize(section.keepReadingHover(), Placeholder.unparsed("topic", t.topic()))
-          );
-          preface.lines().forEach(i -> {
-            var component = prefix.component(i);
-            if (preface.isContinuable()) {
-              component = component
-                  .clickEvent(runCommand("/faq " + t.topic()))
-                  .hoverEvent(keepReading);
+    long start = System.nanoTime();
+    try {
+      var section = plugin.config().messages();
+      var prefix4u = plugin.prefixFor(sender, PrefixKind.FAQ4U);
+      var defaultGroup = section.list().defaultGroup();
+
+      manager.cache().findTopicOrAlias(topic).ifPresentOrElse(
+          (t) -> {
+            if (!t.group().equals(defaultGroup)) {
+              prefix4u.response(text("This topic can't be used because it's locked behind a permission", RED));
+              return;
             }
-            plugin.networkBroadcast(component, sender);
-          });
-          if (preface.isPreview()) {
-            plugin.networkBroadcast(prefix.component(section.keepReading()).clickEvent(
-                runCommand("/faq " + t.topic())
-            ).hoverEvent(keepReading), sender);
-          }
-        },
-        () -> prefix4u.logged(section.unknownTopic())
-    );
+            var broadcasts = manager.renderCache().broadcast(t, PrefixKind.FAQ);
+            plugin.mainThread().execute(() -> {
+              for (var broadcast : broadcasts) {
+                plugin.networkBroadcast(broadcast.component(), broadcast.payload(), sender);
+              }
+            });
+          },
+          () -> unknownTopic(prefix4u, suggest(topic, defaultGroup::equals), "faq4u")
+      );
+    } finally {
+      faqForYouTime.recordSince(start);
+    }
   }
 
   @CommandDescription("Create a new FAQ")
@@ -174,21 +247,74 @@ public class Commands {
     prefix.response(text("Processing new topic...", GRAY, ITALIC));
 
     boolean isConsole = sender instanceof ConsoleCommandSender;
-    var created = manager.createFaqTopic(topicName, sender);
-    created.ifPresentOrElse(
+    manager.createFaqTopic(topicName, sender).thenAcceptAsync(created -> created.ifPresentOrElse(
         newTopic -> {
           prefix.logged(text("Success! Created new FAQ (assigned #%s)".formatted(newTopic.id())));
           prefix.logged(text("This FAQ still has an empty body, creating link to set the content...", GRAY, ITALIC));
-          try {
-            prefix.response(manager.makeEditorLink(isConsole, newTopic, Field.CONTENT, section.initialPlaceholder())
-                .apply(text("Please click to set the content now!", BLUE, UNDERLINED).hoverEvent(showText(text("Click!")))));
-          } catch (ExecutionException | InterruptedException e) {
-            prefix.logged(text("Making editor link failed?", RED));
-            plugin.getSLF4JLogger().error("Making editor link failed", e);
-          }
+          sendEditorLink(
+              prefix,
+              manager.makeEditorLink(isConsole, newTopic, Field.CONTENT, section.initialPlaceholder()),
+              text("Please click to set the content now!", BLUE, UNDERLINED).hoverEvent(showText(text("Click!")))
+          );
         },
         () -> prefix.logged(text("Creating new FAQ failed?", RED))
-    );
+    ), plugin.mainThread());
+  }
+
+  private void reportWrite(
+      Prefixer prefix, CompletableFuture<WriteResult> write, int id, Field field, Function<Topic, String> now) {
+    var name = field.name();
+    write.thenAcceptAsync(result -> {
+      if (result instanceof WriteResult.Success success) {
+        prefix.logged(text("Success! %s of #%s was modified (now %s)".formatted(name, id, now.apply(success.topic()))));
+      } else if (result instanceof WriteResult.Conflict conflict) {
+        prefix.logged(text("%s of #%s was changed by someone else in the meantime (now %s), run the command again to overwrite it".formatted(name, id, now.apply(conflict.current())), RED));
+      } else if (result instanceof WriteResult.Queued) {
+        prefix.logged(text("Couldn't save %s of #%s right now, the change is queued and will be saved later".formatted(name, id), GOLD));
+      } else {
+        prefix.logged(text("Saving new %s failed?".formatted(name), RED));
+      }
+    }, plugin.mainThread());
+  }
+
+  private static String aliasSummary(Topic t) {
+    return "%s: %s".formatted(t.alias().size(), t.alias());
+  }
+
+  private void sendEditorLink(Prefixer prefix, CompletableFuture<Function<Component, Component>> link, Component label) {
+    link.whenCompleteAsync((transform, e) -> {
+      if (e != null) {
+        prefix.logged(text("Making editor link failed?", RED));
+        plugin.getSLF4JLogger().error("Making editor link failed", e);
+        return;
+      }
+      prefix.response(transform.apply(label));
+    }, plugin.mainThread());
+  }
+
+  /**
+   * Sends a link to edit one of a topic's fields. Normally the latest version of the topic is
+   * fetched first, unless a session for the cached version was already prefetched.
+   */
+  private void sendEditorLinkFor(CommandSender sender, int id, Field field) {
+    var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
+    var placeholder = plugin.config().messages().manage().initialPlaceholder();
+    boolean isConsole = sender instanceof ConsoleCommandSender;
+    Function<Topic, Component> label = existing ->
+        text("Please click to edit the %s of %s!".formatted(field.name().toLowerCase(), existing.topic()), BLUE, UNDERLINED)
+            .hoverEvent(showText(text("Click!")));
+
+    var cached = manager.cache().get().byId(id);
+    if (cached.isPresent() && manager.editorSessions().isReady(cached.get(), field)) {
+      sendEditorLink(prefix, manager.makeEditorLink(isConsole, cached.get(), field, placeholder), label.apply(cached.get()));
+      return;
+    }
+
+    prefix.response(text("Generating link...", GRAY, ITALIC));
+    manager.cache().fetch(id).thenAcceptAsync(fetched -> fetched.ifPresentOrElse(
+        existing -> sendEditorLink(prefix, manager.makeEditorLink(isConsole, existing, field, placeholder), label.apply(existing)),
+        () -> prefix.logged(text("Making editor link failed?", RED))
+    ), plugin.mainThread());
   }
 
   @CommandDescription("List all FAQ for management")
@@ -197,57 +323,62 @@ public class Commands {
   private void commandFaqList(
       final @NotNull CommandSender sender
   ) {
-    var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
-    var section = plugin.config().messages().manage().list();
-    var defaultGroup = plugin.config().messages().list().defaultGroup();
-
-    prefix.logged(section.header(), Placeholder.unparsed("count", String.valueOf(manager.cache().invalidateAndGet().size())));
-    manager.cache().get().stream().sorted(Comparator.comparingInt(Topic::id)).forEach(topic -> {
-      Component topicComponent;
-      Component aliases = empty();
-      ArrayList<TagResolver> placeholders = new ArrayList<>();
-      placeholders.add(Placeholder.unparsed("id", String.valueOf(topic.id())));
-      placeholders.add(Placeholder.component("author", Manager.componentAuthor(topic.author())));
-      placeholders.add(Placeholder.unparsed("author_uuid", topic.author().toString()));
-      placeholders.add(Placeholder.unparsed("group", topic.group()));
-      placeholders.add(Placeholder.unparsed("created_ago", formatInstantToNow(topic.createdAt())));
-      placeholders.add(Placeholder.unparsed("updated_ago", formatInstantToNow(topic.updatedAt())));
-      if (topic.group().equals(defaultGroup)) {
-        topicComponent = m.deserialize(
-            section.topic().defaultGroup(),
-            Placeholder.unparsed("topic", topic.topic())
-        );
-      } else {
-        topicComponent = m.deserialize(
-            section.topic().customGroup(),
-            Placeholder.unparsed("topic", topic.topic()),
-            Placeholder.unparsed("group", topic.group())
+    long start = System.nanoTime();
+    try {
+      var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
+      var section = plugin.config().messages().manage().list();
+      var defaultGroup = plugin.config().messages().list().defaultGroup();
+
+      prefix.logged(section.header(), Placeholder.unparsed("count", String.valueOf(manager.cache().get().topics().size())));
+      manager.cache().get().topics().stream().sorted(Comparator.comparingInt(Topic::id)).forEach(topic -> {
+        Component topicComponent;
+        Component aliases = empty();
+        ArrayList<TagResolver> placeholders = new ArrayList<>();
+        placeholders.add(Placeholder.unparsed("id", String.valueOf(topic.id())));
+        placeholders.add(Placeholder.component("author", Manager.componentAuthor(topic.author())));
+        placeholders.add(Placeholder.unparsed("author_uuid", topic.author().toString()));
+        placeholders.add(Placeholder.unparsed("group", topic.group()));
+        placeholders.add(Placeholder.unparsed("created_ago", formatInstantToNow(topic.createdAt())));
+        placeholders.add(Placeholder.unparsed("updated_ago", formatInstantToNow(topic.updatedAt())));
+        if (topic.group().equals(defaultGroup)) {
+          topicComponent = m.deserialize(
+              section.topic().defaultGroup(),
+              Placeholder.unparsed("topic", topic.topic())
+          );
+        } else {
+          topicComponent = m.deserialize(
+              section.topic().customGroup(),
+              Placeholder.unparsed("topic", topic.topic()),
+              Placeholder.unparsed("group", topic.group())
+          );
+        }
+        topicComponent = topicComponent.hoverEvent(showText(
+            m.deserialize(section.topic().hover(), TagResolver.resolver(placeholders))
+        ));
+        if (topic.alias().size() > 0) {
+          aliases = m.deserialize(section.aliases(), Placeholder.unparsed("aliases", String.join(", ", topic.alias())));
+        }
+        placeholders.add(Placeholder.component("topic", topicComponent));
+        placeholders.add(Placeholder.component("aliases", aliases));
+        placeholders.add(Placeholder.component("edit_button", m.deserialize(section.editLabel())
+            .clickEvent(runCommand("/faqeditor actions %s".formatted(topic.id())))
+            .hoverEvent(showText(m.deserialize(section.editLabelHover(),
+                Placeholder.component("topic", topicComponent))
+            ))));
+        placeholders.add(Placeholder.component("preview_content", manager.makePreview(Field.CONTENT, topic)));
+        placeholders.add(Placeholder.component("preview_preface", manager.makePreview(Field.PREFACE, topic)));
+
+        prefix.response(
+            section.line() + (topic.content().isBlank() ? section.incomplete() : ""), placeholders
         );
-      }
-      topicComponent = topicComponent.hoverEvent(showText(
-          m.deserialize(section.topic().hover(), TagResolver.resolver(placeholders))
-      ));
-      if (topic.alias().size() > 0) {
-        aliases = m.deserialize(section.aliases(), Placeholder.unparsed("aliases", String.join(", ", topic.alias())));
-      }
-      placeholders.add(Placeholder.component("topic", topicComponent));
-      placeholders.add(Placeholder.component("aliases", aliases));
-      placeholders.add(Placeholder.component("edit_button", m.deserialize(section.editLabel())
-          .clickEvent(runCommand("/faqeditor actions %s".formatted(topic.id())))
-          .hoverEvent(showText(m.deserialize(section.editLabelHover(),
-              Placeholder.component("topic", topicComponent))
-          ))));
-      placeholders.add(Placeholder.component("preview_content", manager.makePreview(Field.CONTENT, topic)));
-      placeholders.add(Placeholder.component("preview_preface", manager.makePreview(Field.PREFACE, topic)));
-
-      prefix.response(
-          section.line() + (topic.content().isBlank() ? section.incomplete() : ""), placeholders
+      });
+      prefix.response(section.hint(),
+          Placeholder.parsed("preview_content", section.preview().content().label()),
+          Placeholder.parsed("preview_preface", section.preview().preface().label())
       );
-    });
-    prefix.response(section.hint(),
-        Placeholder.parsed("preview_content", section.preview().content().label()),
-        Placeholder.parsed("preview_preface", section.preview().preface().label())
-    );
+    } finally {
+      editorListTime.recordSince(start);
+    }
   }
 
   @CommandDescription("Menu for editing FAQ")
@@ -261,13 +392,9 @@ public class Commands {
     var section = plugin.config().messages().manage().edit();
     var existing = manager.cache().find(id);
 
-    try {
-      prefix.response(section.header(), Placeholder.unparsed("topic", existing.topic()));
-      manager.makeButtons(existing, sender::hasPermission).forEach(prefix::response);
-      prefix.response(Component.empty());
-    } catch (ExecutionException | InterruptedException e) {
-      prefix.logged(text("Failed?", RED));
-    }
+    prefix.response(section.header(), Placeholder.unparsed("topic", existing.topic()));
+    manager.makeButtons(existing, sender::hasPermission).forEach(prefix::response);
+    prefix.response(Component.empty());
   }
 
   @CommandDescription("Create editor modification to the content of a FAQ")
@@ -277,20 +404,7 @@ public class Commands {
       final @NotNull CommandSender sender,
       final @Argument("id") int id
   ) {
-    var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
-    var section = plugin.config().messages().manage();
-    prefix.response(text("Generating link...", GRAY, ITALIC));
-
-    var existing = manager.cache().findNow(id);
-    boolean isConsole = sender instanceof ConsoleCommandSender;
-
-    try {
-      prefix.response(manager.makeEditorLink(isConsole, existing, Field.CONTENT, section.initialPlaceholder())
-          .apply(text("Please click to edit the content of %s!".formatted(existing.topic()), BLUE, UNDERLINED).hoverEvent(showText(text("Click!")))));
-    } catch (ExecutionException | InterruptedException e) {
-      prefix.logged(text("Making editor link failed?", RED));
-      plugin.getSLF4JLogger().error("Making editor link failed", e);
-    }
+    sendEditorLinkFor(sender, id, Field.CONTENT);
   }
 
   @CommandDescription("Create editor modification to the content of a FAQ")
@@ -300,19 +414,7 @@ public class Commands {
       final @NotNull CommandSender sender,
       final @Argument("id") int id
   ) {
-    var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
-    prefix.response(text("Generating link...", GRAY, ITALIC));
-
-    var existing = manager.cache().findNow(id);
-    boolean isConsole = sender instanceof ConsoleCommandSender;
-
-    try {
-      prefix.response(manager.makeEditorLink(isConsole, existing, Field.PREFACE, plugin.config().messages().manage().initialPlaceholder())
-          .apply(text("Please click to edit the preface of %s!".formatted(existing.topic()), BLUE, UNDERLINED).hoverEvent(showText(text("Click!")))));
-    } catch (ExecutionException | InterruptedException e) {
-      prefix.logged(text("Making editor link failed?", RED));
-      plugin.getSLF4JLogger().error("Making editor link failed", e);
-    }
+    sendEditorLinkFor(sender, id, Field.PREFACE);
   }
 
   @CommandDescription("Apply editor modification to the content of a FAQ")
@@ -355,11 +457,7 @@ public class Commands {
 
     prefix.response(text("Processing change...", GRAY, ITALIC));
 
-    var modified = manager.updateFaqTopic(id, Field.TOPIC, newTopic, sender);
-    modified.ifPresentOrElse(
-        faqTopic -> prefix.logged(text("Success! TOPIC of #%s was modified (now %s)".formatted(id, faqTopic.topic()))),
-        () -> prefix.logged(text("Saving new TOPIC failed?", RED))
-    );
+    reportWrite(prefix, manager.updateFaqTopic(id, Field.TOPIC, newTopic, sender), id, Field.TOPIC, Topic::topic);
   }
 
   @CommandDescription("Set group of a FAQ")
@@ -379,11 +477,7 @@ public class Commands {
 
     prefix.response(text("Processing change...", GRAY, ITALIC));
 
-    var modified = manager.updateFaqTopic(id, Field.GROUP, cleanGroupName, sender);
-    modified.ifPresentOrElse(
-        faqTopic -> prefix.logged(text("Success! GROUP of #%s was modified (now %s)".formatted(id, faqTopic.group()))),
-        () -> prefix.logged(text("Saving new GROUP failed?", RED))
-    );
+    reportWrite(prefix, manager.updateFaqTopic(id, Field.GROUP, cleanGroupName, sender), id, Field.GROUP, Topic::group);
   }
 
   @CommandDescription("yes")
@@ -392,7 +486,7 @@ public class Commands {
   private void commandFaqDebug(
       final @NotNull CommandSender sender
   ) {
-    sender.sendMessage(manager.cache().invalidateAndGet().toString());
+    sender.sendMessage(manager.cache().get().toString());
   }
 
   @CommandDescription("Add new alias to a FAQ")
@@ -412,11 +506,7 @@ public class Commands {
 
     prefix.response(text("Processing change...", GRAY, ITALIC));
 
-    var modified = manager.updateFaqArrayField(id, Field.ALIAS, Method.POST, newAlias, sender);
-    modified.ifPresentOrElse(
-        faqTopic -> prefix.logged(text("Success! ALIAS of #%s was modified (now %s: %s)".formatted(id, faqTopic.alias().size(), faqTopic.alias()))),
-        () -> prefix.logged(text("Saving new ALIAS failed?", RED))
-    );
+    reportWrite(prefix, manager.updateFaqArrayField(id, Field.ALIAS, Method.POST, newAlias, sender), id, Field.ALIAS, Commands::aliasSummary);
   }
 
   @CommandDescription("Remove alias from a FAQ")
@@ -431,11 +521,7 @@ public class Commands {
 
     prefix.response(text("Processing change...", GRAY, ITALIC));
 
-    var modified = manager.updateFaqArrayField(id, Field.ALIAS, Method.DELETE, aliasName, sender);
-    modified.ifPresentOrElse(
-        faqTopic -> prefix.logged(text("Success! ALIAS of #%s was modified (now %s: %s)".formatted(id, faqTopic.alias().size(), faqTopic.alias()))),
-        () -> prefix.logged(text("Saving new ALIAS failed?", RED))
-    );
+    reportWrite(prefix, manager.updateFaqArrayField(id, Field.ALIAS, Method.DELETE, aliasName, sender), id, Field.ALIAS, Commands::aliasSummary);
   }
 
   @CommandDescription("Reposition a FAQ")
@@ -447,13 +533,19 @@ public class Commands {
   ) {
     var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
 
+    manager.cache().fetch(id).thenAcceptAsync(fetched -> fetched.ifPresentOrElse(
+        existing -> sendPositionMenu(sender, prefix, id, existing),
+        () -> prefix.logged(text("Fetching #%s failed?".formatted(id), RED))
+    ), plugin.mainThread());
+  }
+
+  private void sendPositionMenu(CommandSender sender, Prefixer prefix, int id, Topic existing) {
     var lastPos = new AtomicReference<>(new Topic.Pos(0, 0));
-    var existing = manager.cache().findNow(id);
     var lister = new FaqLister(
         PrefixKind.FAQ,
         "faq",
         plugin, manager.cache(),
-        (g) -> sender.hasPermission("vfaq.group." + g),
+        manager.groupResolver().visibleGroups(sender)::contains,
         (line) -> prefix.response(
             line
                 .clickEvent(ClickEvent.runCommand("/faqeditor set %s pos %s %s".formatted(id, lastPos.get().line(), lastPos.get().col() + 1)))
@@ -496,11 +588,7 @@ public class Commands {
     prefix.response(text("Processing change...", GRAY, ITALIC));
     var newPos = new Topic.Pos(line, col);
 
-    var modified = manager.updateFaqComplex(id, Field.POS, newPos.tuple(), newPos.toJson(), sender);
-    modified.ifPresentOrElse(
-        faqTopic -> prefix.logged(text("Success! POS of #%s was modified (now %s)".formatted(id, faqTopic.pos().tuple()))),
-        () -> prefix.logged(text("Saving new POS failed?", RED))
-    );
+    reportWrite(prefix, manager.updateFaqComplex(id, Field.POS, newPos.tuple(), newPos.toJson(), sender), id, Field.POS, t -> t.pos().tuple());
   }
 
   @CommandDescription("Delete FAQ")
@@ -514,35 +602,65 @@ public class Commands {
 
     prefix.response(text("Processing deletion...", GRAY, ITALIC));
 
-    var success = manager.deleteFaqTopic(id, sender);
-    if (success) {
-      prefix.logged(text("Success! #%s was deleted".formatted(id)));
-    } else {
-      prefix.logged(text("Deleting FAQ failed?", RED));
-    }
+    manager.deleteFaqTopic(id, sender).thenAcceptAsync(success -> {
+      if (success) {
+        prefix.logged(text("Success! #%s was deleted".formatted(id)));
+      } else {
+        prefix.logged(text("Deleting FAQ failed?", RED));
+      }
+    }, plugin.mainThread());
   }
 
   @CommandDescription("Reload config")
   @Command("faqeditor reload config")
   @Permission("vfaq.cmd.reload")
   private void commandReload(final @NotNull CommandSender sender) {
-    try {
-      plugin.loadConfig();
-      var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
-      prefix.response("Config was reloaded!");
-    } catch (ConfigurateException e) {
-      e.printStackTrace();
-    }
+    // Swaps the config and connections everything else reads, so do it where nothing else runs
+    plugin.mainThread().execute(() -> {
+      try {
+        plugin.loadConfig();
+        manager.renderCache().clear();
+        manager.listingCache().clear();
+        manager.groupResolver().clear();
+        var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
+        prefix.response("Config was reloaded!");
+      } catch (ConfigurateException e) {
+        e.printStackTrace();
+      }
+    });
   }
 
-  @Command("faqeditor admin history <id>")
+  @Command("faqeditor admin history <id> [page]")
   @Permission("vfaq.admin.history")
   private void commandAdminHistory(
       final @NotNull CommandSender sender,
-      final @Argument("id") int faq
+      final @Argument("id") int faq,
+      final @Argument("page") Integer page
   ) {
-    var history = manager.cache().supabaseGetHistoryForFaq(manager.supabase(), faq).orElseThrow();
-    history.forEach(i -> sender.sendMessage(i.asComponent()));
+    manager.cache().historyPage(faq, page == null ? 1 : Math.max(1, page)).thenAcceptAsync(result -> result.ifPresentOrElse(
+        historyPage -> sender.sendMessage(historyPageComponent(historyPage)),
+        () -> sender.sendMessage(text("Fetching history failed?", RED))
+    ), plugin.mainThread());
+  }
+
+  private Component historyPageComponent(HistoryPage historyPage) {
+    var lines = new ArrayList<Component>();
+    var pages = historyPage.pageCount() == 0 ? "" : "/" + historyPage.pageCount();
+    lines.add(text("====== History of #%s, page %s%s ======".formatted(historyPage.faq(), historyPage.page(), pages)));
+    if (historyPage.entries().isEmpty()) lines.add(text("Nothing here", GRAY, ITALIC));
+    historyPage.entries().forEach(i -> lines.add(i.asComponent()));
+
+    var navigation = empty();
+    if (historyPage.hasPrevious()) {
+      navigation = navigation.append(text("[« Newer]", GOLD)
+          .clickEvent(runCommand("/faqeditor admin history %s %s".formatted(historyPage.faq(), historyPage.page() - 1))));
+    }
+    if (historyPage.hasNext()) {
+      navigation = navigation.append(text("[Older »]", GOLD)
+          .clickEvent(runCommand("/faqeditor admin history %s %s".formatted(historyPage.faq(), historyPage.page() + 1))));
+    }
+    if (!navigation.children().isEmpty()) lines.add(navigation);
+    return Component.join(JoinConfiguration.newlines(), lines);
   }
 
   @Command("faqeditor admin inspect <id>")
@@ -551,56 +669,83 @@ public class Commands {
       final @NotNull CommandSender sender,
       final @Argument("id") int historyId
   ) {
-    var history = manager.cache().supabaseGetHistorySingle(manager.supabase(), historyId).orElseThrow();
-    var delimiter = text("====== Modification inspection for %s ======".formatted(history.id()));
-    try {
-      var drg = DiffRowGenerator.create()
-          .showInlineDiffs(true)
-          .mergeOriginalRevised(true)
-          .lineNormalizer(i -> i.replace("<", "\\<"))
-          .oldTag(f -> f ? "<red><st>" : "</st></red>")
-          .newTag(f -> f ? "<green><u>" : "</u></green>")
-          .build();
-      var rows = drg.generateDiffRows(List.of(history.beforeOrBlank().split("\n")), List.of(history.after().split("\n")));
-      sender.sendMessage(delimiter);
-      rows.forEach(r -> {
-        var prefix = switch (r.getTag()) {
-          case EQUAL -> text(" = ", WHITE);
-          case INSERT -> text(" + ", GREEN);
-          case DELETE -> text(" - ", RED);
-          case CHANGE -> text(" > ", YELLOW);
-        };
-        sender.sendMessage(text("", GRAY).append(prefix).append(text("| ", DARK_GRAY)).append(m.deserialize(r.getOldLine())));
-      });
-      sender.sendMessage(delimiter);
-    } catch (DiffException e) {
-      e.printStackTrace();
+    manager.diffCache().inspect(historyId).thenAcceptAsync(result -> result.ifPresentOrElse(
+        sender::sendMessage,
+        () -> sender.sendMessage(text("Inspecting #%s failed?".formatted(historyId), RED))
+    ), plugin.mainThread());
+  }
+
+  @Command("faqeditor admin metrics")
+  @Permission("vfaq.admin.metrics")
+  private void commandAdminMetrics(
+      final @NotNull CommandSender sender
+  ) {
+    var lines = plugin.metrics().describe();
+    if (lines.isEmpty()) {
+      sender.sendMessage(text("Nothing has been recorded yet", GRAY));
+      return;
     }
+    sender.sendMessage(Component.join(JoinConfiguration.newlines(), lines.stream().map(Component::text).toList()));
+  }
+
+  @Command("faqeditor admin export [name]")
+  @Permission("vfaq.admin.transfer")
+  private void commandAdminExport(
+      final @NotNull CommandSender sender,
+      final @Argument("name") String name,
+      final @Flag("history") boolean withHistory
+  ) {
+    var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
+    var fileName = name != null ? name : "faqs-" + EXPORT_NAME.format(LocalDateTime.now());
+
+    prefix.response(text("Exporting...", GRAY, ITALIC));
+    reportTransfer(prefix, manager.exportFaqs(fileName, withHistory), "Export");
+  }
+
+  @Command("faqeditor admin import <name>")
+  @Permission("vfaq.admin.transfer")
+  private void commandAdminImport(
+      final @NotNull CommandSender sender,
+      final @Argument("name") String name
+  ) {
+    var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
+
+    prefix.response(text("Importing...", GRAY, ITALIC));
+    reportTransfer(prefix, manager.importFaqs(name), "Import");
+  }
+
+  private void reportTransfer(Prefixer prefix, CompletableFuture<FaqTransfer.Counts> transfer, String label) {
+    transfer.whenCompleteAsync((counts, e) -> {
+      if (e != null) {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        prefix.logged(text("%s failed: %s".formatted(label, cause.getMessage()), RED));
+        cause.printStackTrace();
+        return;
+      }
+      prefix.logged(text("%s done! %s topics and %s history entries (%s)".formatted(
+          label, counts.faqs(), counts.history(), counts.file().getFileName())));
+    }, plugin.mainThread());
   }
 
   @Suggestions("faqTopicsAll")
   public @NotNull List<String> completeFaqTopicsAll(CommandContext<CommandSender> sender, String input) {
-    var defaultGroup = plugin.config().messages().list().defaultGroup();
-    return manager.cache().get().stream()
-        .filter(t -> t.group().equals(defaultGroup) || sender.sender().hasPermission("vfaq.group." + t.group()))
-        .mapMulti((Topic i, Consumer<String> r) -> {
-          r.accept(i.topic());
-          i.alias().forEach(r);
-        })
-        .filter(t -> t.toLowerCase().startsWith(input.toLowerCase()))
-        .limit(20).toList();
+    long start = System.nanoTime();
+    try {
+      var visible = manager.groupResolver().visibleGroups(sender.sender());
+      return manager.cache().get().complete(input, visible::contains, 20);
+    } finally {
+      completionTime.recordSince(start);
+    }
   }
 
   @Suggestions("faqTopicsDefault")
   public @NotNull List<String> completeFaqTopicsDefault(CommandContext<CommandSender> sender, String input) {
-    var defaultGroup = plugin.config().messages().list().defaultGroup();
-    return manager.cache().get().stream()
-        .filter(t -> t.group().equals(defaultGroup))
-        .mapMulti((Topic i, Consumer<String> r) -> {
-          r.accept(i.topic());
-          i.alias().forEach(r);
-        })
-        .filter(t -> t.toLowerCase().startsWith(input.toLowerCase()))
-        .limit(20).toList();
+    long start = System.nanoTime();
+    try {
+      var defaultGroup = plugin.config().messages().list().defaultGroup();
+      return manager.cache().get().complete(input, defaultGroup::equals, 20);
+    } finally {
+      completionTime.recordSince(start);
+    }
   }
 }
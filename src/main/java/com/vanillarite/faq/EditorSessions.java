@@ -0,0 +1,101 @@
+package com.vanillarite.faq;
+
+import com.vanillarite.faq.storage.Topic;
+import com.vanillarite.faq.storage.supabase.Field;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts web editor sessions without ever blocking on the editor's API. Each session is given up on
+ * after the configured timeout, and when several people open the editor for the same topic and
+ * field within a few seconds of each other, they all get the one session.
+ *
+ * <p>With {@code mm_editor.prefetch} on, sessions can also be started ahead of time, so the link is
+ * ready by the time someone actually asks for it. Sessions are tied to the topic's
+ * {@code updatedAt}, so a prefetched session for an outdated version is never handed out.
+ */
+public final class EditorSessions {
+  private static final long DEDUPE_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final long SEEN_NANOS = TimeUnit.HOURS.toNanos(6);
+
+  private final FaqPlugin plugin;
+  private final Map<Key, Session> recent = new ConcurrentHashMap<>();
+  private final Map<String, Seen> seenByToken = new ConcurrentHashMap<>();
+
+  public EditorSessions(FaqPlugin plugin) {
+    this.plugin = plugin;
+  }
+
+  private void evict(Topic topic, Field field, long now) {
+    recent.entrySet().removeIf(e -> now - e.getValue().expiresAt() > 0
+        || (e.getKey().id() == topic.id() && e.getKey().field() == field && !e.getKey().updatedAt().equals(topic.updatedAt())));
+  }
+
+  private Session session(Topic topic, Field field, String input, long now, boolean prefetch) {
+    var key = new Key(topic.id(), field, topic.updatedAt());
+    evict(topic, field, now);
+
+    var session = recent.compute(key, (k, existing) -> {
+      if (existing != null && !existing.token().isCompletedExceptionally()) {
+        // Once someone has used a prefetched session, only share it for as long as any other
+        if (!prefetch && existing.prefetched()) return new Session(existing.token(), now + DEDUPE_NANOS, false);
+        return existing;
+      }
+
+      var token = plugin.editor().startSession(
+          input,
+          "/faqeditor submit %s %s {token}".formatted(topic.id(), field.name().toLowerCase()),
+          "VanillariteFAQ"
+      ).orTimeout(plugin.config().mmEditor().timeoutSeconds(), TimeUnit.SECONDS);
+      var ttl = prefetch ? TimeUnit.SECONDS.toNanos(plugin.config().mmEditor().prefetchTtlSeconds()) : DEDUPE_NANOS;
+      return new Session(token, now + ttl, prefetch);
+    });
+    // A failed session shouldn't be handed to anyone else
+    session.token().whenComplete((t, e) -> {
+      if (e != null) {
+        recent.remove(key, session);
+      } else {
+        seenByToken.values().removeIf(s -> System.nanoTime() - s.startedAt() > SEEN_NANOS);
+        seenByToken.putIfAbsent(t, new Seen(topic, now));
+      }
+    });
+    return session;
+  }
+
+  /** The token of an editor session for the topic's field, with the editor pre-filled with {@code input}. */
+  public CompletableFuture<String> start(Topic topic, Field field, String input) {
+    return session(topic, field, input, System.nanoTime(), false).token();
+  }
+
+  /** Starts a session in the background for a link that will probably be asked for soon. */
+  public void prefetch(Topic topic, Field field, String input) {
+    if (!plugin.config().mmEditor().prefetch()) return;
+    session(topic, field, input, System.nanoTime(), true);
+  }
+
+  /** Whether a prefetched (or recently started) session for this exact version of the field is ready. */
+  public boolean isReady(Topic topic, Field field) {
+    var session = recent.get(new Key(topic.id(), field, topic.updatedAt()));
+    return session != null
+        && System.nanoTime() - session.expiresAt() < 0
+        && session.token().isDone()
+        && !session.token().isCompletedExceptionally();
+  }
+
+  /** The version of the topic a session's editor was filled from, if it was started here. */
+  public @Nullable Topic seen(String token) {
+    var seen = seenByToken.get(token);
+    return seen == null ? null : seen.topic();
+  }
+
+  private record Key(int id, Field field, Instant updatedAt) {}
+
+  private record Seen(Topic topic, long startedAt) {}
+
+  private record Session(CompletableFuture<String> token, long expiresAt, boolean prefetched) {}
+}
@@ -4,6 +4,10 @@ import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 import com.vanillarite.faq.config.Config;
 import com.vanillarite.faq.config.PrefixKind;
+import com.vanillarite.faq.metrics.Metrics;
+import com.vanillarite.faq.metrics.PrometheusExporter;
+import com.vanillarite.faq.storage.Manager;
+import com.vanillarite.faq.storage.supabase.SupabaseConnection;
 import com.vanillarite.faq.util.Prefixer;
 import io.papermc.paper.command.brigadier.CommandSourceStack;
 import net.kyori.adventure.text.Component;
@@ -29,12 +33,19 @@ import org.spongepowered.configurate.util.NamingSchemes;
 import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 public final class FaqPlugin extends JavaPlugin {
   public static final MiniMessage m = MiniMessage.miniMessage();
+  private static final int MAX_UTF_LENGTH = 65535;
   private final ObjectMapper.Factory objectFactory =
       ObjectMapper.factoryBuilder().defaultNamingScheme(NamingSchemes.SNAKE_CASE).build();
   private final YamlConfigurationLoader.Builder configBuilder =
@@ -42,13 +53,47 @@ public final class FaqPlugin extends JavaPlugin {
           .defaultOptions(
               opts -> opts.serializers(builder -> builder.registerAnnotatedObjects(objectFactory)));
   private final File configFile = new File(this.getDataFolder(), "config.yml");
+  private final ExecutorService storageExecutor = Executors.newVirtualThreadPerTaskExecutor();
+  private final Executor mainThread = (task) -> getServer().getScheduler().runTask(this, task);
+  private final Metrics metrics = new Metrics();
+  private @Nullable PrometheusExporter prometheus;
   private boolean isBungee = false;
-  private Config config;
+  // Replaced on reload while commands and storage threads read them
+  private volatile Config config;
+  private volatile SupabaseConnection supabase;
+  private volatile AdventureEditorAPI editor;
+  private Manager manager;
 
   public Config config() {
     return config;
   }
 
+  public SupabaseConnection supabase() {
+    return supabase;
+  }
+
+  public AdventureEditorAPI editor() {
+    return editor;
+  }
+
+  public Manager manager() {
+    return manager;
+  }
+
+  public Metrics metrics() {
+    return metrics;
+  }
+
+  /** Executor for anything that talks to Supabase or otherwise blocks on the network. */
+  public Executor storageExecutor() {
+    return storageExecutor;
+  }
+
+  /** Executor which hands results back to the server thread. */
+  public Executor mainThread() {
+    return mainThread;
+  }
+
   @Override
   public void onEnable() {
     saveDefaultConfig();
@@ -66,8 +111,22 @@ public final class FaqPlugin extends JavaPlugin {
       e.printStackTrace();
     }
 
+    var metricsConfig = config.metrics();
+    if (metricsConfig.prometheusEnabled()) {
+      try {
+        var address = new InetSocketAddress(metricsConfig.prometheusBind(), metricsConfig.prometheusPort());
+        prometheus = new PrometheusExporter(metrics, address, storageExecutor);
+        getLogger().info("Serving metrics on http://%s:%s/metrics".formatted(address.getHostString(), address.getPort()));
+      } catch (IOException e) {
+        getSLF4JLogger().error("Couldn't start the Prometheus endpoint", e);
+      }
+    }
+
+    manager = new Manager(this);
+    getServer().getPluginManager().registerEvents(manager.groupResolver(), this);
+
     final LegacyPaperCommandManager<CommandSender> manager =
-            LegacyPaperCommandManager.createNative(this, ExecutionCoordinator.simpleCoordinator());
+            LegacyPaperCommandManager.createNative(this, ExecutionCoordinator.asyncCoordinator());
     if (manager.hasCapability(CloudBukkitCapabilities.NATIVE_BRIGADIER)) {
       manager.registerBrigadier();
     }
@@ -97,23 +156,73 @@ public final class FaqPlugin extends JavaPlugin {
     getServer().getScheduler().runTaskLater(this, () -> debug(config.toString()), 50);
   }
 
-  public void networkBroadcast(@NotNull Component c, @Nullable CommandSender sender) {
-    if (!isBungee) {
-      getServer().broadcast(c);
-      return;
+  @Override
+  public void onDisable() {
+    if (manager != null) manager.close();
+    if (prometheus != null) prometheus.close();
+    // After the manager has flushed its writes through it, and before the executor it runs on goes
+    if (supabase != null) supabase.close();
+    storageExecutor.shutdown();
+    try {
+      if (!storageExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+        getLogger().warning("Some storage requests did not finish before shutdown");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
+  }
+
+  /**
+   * Serializes a component into a BungeeCord {@code MessageRaw} plugin message for all servers, or
+   * returns {@code null} if it's too long for one ({@code writeUTF} is limited to 64KB).
+   */
+  public static byte @Nullable [] messageRawPayload(@NotNull Component c) {
+    var json = GsonComponentSerializer.gson().serialize(c);
+    if (modifiedUtf8Length(json) > MAX_UTF_LENGTH) return null;
 
     //noinspection UnstableApiUsage
     ByteArrayDataOutput out = ByteStreams.newDataOutput();
     out.writeUTF("MessageRaw");
     out.writeUTF("ALL");
-    out.writeUTF(GsonComponentSerializer.gson().serialize(c));
+    out.writeUTF(json);
+    return out.toByteArray();
+  }
+
+  /** How many bytes {@link java.io.DataOutput#writeUTF} would need for the string. */
+  private static long modifiedUtf8Length(String s) {
+    long length = 0;
+    for (int i = 0; i < s.length(); i++) {
+      var c = s.charAt(i);
+      if (c >= 0x0001 && c <= 0x007F) length += 1;
+      else if (c <= 0x07FF) length += 2;
+      else length += 3;
+    }
+    return length;
+  }
+
+  /**
+   * Broadcasts a component to every server behind the proxy. A payload already built with {@link
+   * #messageRawPayload(Component)} can be passed in to skip serializing it again. Components too long
+   * for a plugin message are only broadcast on this server.
+   */
+  public void networkBroadcast(@NotNull Component c, byte @Nullable [] payload, @Nullable CommandSender sender) {
+    if (!isBungee) {
+      getServer().broadcast(c);
+      return;
+    }
+
+    var message = payload != null ? payload : messageRawPayload(c);
+    if (message == null) {
+      getLogger().warning("A broadcast was too long to send through the proxy, only showing it on this server");
+      getServer().broadcast(c);
+      return;
+    }
     Bukkit.getConsoleSender().sendMessage(c);
 
     Bukkit.getOnlinePlayers().stream()
         .findFirst()
         .ifPresentOrElse(
-            (e) -> e.sendPluginMessage(this, "BungeeCord", out.toByteArray()),
+            (e) -> e.sendPluginMessage(this, "BungeeCord", message),
             () -> {
               if (sender != null) {
                 sender.sendMessage(
@@ -140,5 +249,15 @@ public final class FaqPlugin extends JavaPlugin {
     final var defaultLoader = configBuilder.url(this.getClass().getResource("/config.yml")).build();
     config =
         objectFactory.get(Config.class).load(configLoader.load().mergeFrom(defaultLoader.load()));
+    var previous = supabase;
+    if (previous == null || !previous.matches(config.supabase())) {
+      supabase = new SupabaseConnection(config.supabase(), storageExecutor, metrics);
+      if (previous != null) {
+        // Everything else looks the connection up through supabase(), except the Realtime socket
+        if (manager != null) manager.restartRealtime();
+        previous.close();
+      }
+    }
+    editor = new AdventureEditorAPI(config.mmEditor().url(), supabase.client());
   }
 }
@@ -11,7 +11,10 @@ public record Config(
     Map<PrefixKind, String> prefix,
     MessageConfig messages,
     SupabaseConfig supabase,
-    MMEditorConfig mmEditor
+    MMEditorConfig mmEditor,
+    MetricsConfig metrics,
+    LookupConfig lookup,
+    WriteBehindConfig writeBehind
 ) {
 
 }
@@ -0,0 +1,11 @@
+package com.vanillarite.faq.config;
+
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+
+@ConfigSerializable
+public record LookupConfig(
+    int maxDistance,
+    boolean autoCorrect,
+    int maxSuggestions
+) {
+}
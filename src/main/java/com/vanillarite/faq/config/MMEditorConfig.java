@@ -6,6 +6,9 @@ import java.net.URI;
 
 @ConfigSerializable
 public record MMEditorConfig(
-    URI url
+    URI url,
+    int timeoutSeconds,
+    boolean prefetch,
+    int prefetchTtlSeconds
 ) {
 }
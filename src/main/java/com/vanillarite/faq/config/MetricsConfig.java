@@ -0,0 +1,11 @@
+package com.vanillarite.faq.config;
+
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+
+@ConfigSerializable
+public record MetricsConfig(
+    boolean prometheusEnabled,
+    String prometheusBind,
+    int prometheusPort
+) {
+}
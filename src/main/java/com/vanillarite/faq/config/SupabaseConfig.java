@@ -8,6 +8,10 @@ import java.net.URI;
 public record SupabaseConfig(
     URI url,
     String anonKey,
-    String authKey
+    String authKey,
+    int connectTimeoutSeconds,
+    int requestTimeoutSeconds,
+    int maxConcurrentRequests,
+    RealtimeConfig realtime
 ) {
 }
@@ -0,0 +1,11 @@
+package com.vanillarite.faq.config;
+
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+
+@ConfigSerializable
+public record WriteBehindConfig(
+    boolean enabled,
+    int windowMillis,
+    int shutdownFlushSeconds
+) {
+}
@@ -6,10 +6,13 @@ import org.spongepowered.configurate.objectmapping.ConfigSerializable;
 public record MessageConfig(
     String header,
     String unknownTopic,
+    String didYouMean,
+    String suggestion,
     String keepReading,
     String keepReadingHover,
     int maxPreviewLines,
     ListMessages list,
+    SearchMessages search,
     ManageMessages manage
 ) {
 
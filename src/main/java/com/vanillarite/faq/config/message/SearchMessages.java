@@ -0,0 +1,12 @@
+package com.vanillarite.faq.config.message;
+
+import org.spongepowered.configurate.objectmapping.ConfigSerializable;
+
+@ConfigSerializable
+public record SearchMessages(
+    String header,
+    String result,
+    String noResults,
+    int maxResults
+) {
+}
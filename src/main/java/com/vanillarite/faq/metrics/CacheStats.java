@@ -0,0 +1,15 @@
+package com.vanillarite.faq.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters kept by a {@link com.vanillarite.faq.util.SingleCache}. A hit is a {@code get()} served
+ * from memory (even if it kicked off a background refresh), a miss is one that had to wait for a
+ * load.
+ */
+public record CacheStats(LongAdder hits, LongAdder misses, LongAdder failures, Histogram loadTime) {
+  /** Stats which are kept but not exported anywhere. */
+  public static CacheStats unregistered() {
+    return new CacheStats(new LongAdder(), new LongAdder(), new LongAdder(), new Histogram());
+  }
+}
@@ -0,0 +1,83 @@
+package com.vanillarite.faq.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size latency histogram in nanoseconds. Values land in log-linear buckets (each power of two
+ * split into {@value #SUB_BUCKETS} slices), so quantiles are accurate to about 12% across the whole
+ * range while recording is just a couple of atomic increments, with no locking or allocation.
+ */
+public final class Histogram {
+  private static final int SUB_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int BUCKETS = 64 << SUB_BITS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) return (int) value;
+    var exp = 63 - Long.numberOfLeadingZeros(value);
+    var sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return ((exp - SUB_BITS + 1) << SUB_BITS) | sub;
+  }
+
+  /** The largest value that still falls into the given bucket. */
+  static long upperBound(int index) {
+    if (index < SUB_BUCKETS) return index;
+    var exp = (index >>> SUB_BITS) + SUB_BITS - 1;
+    var sub = (long) (index & (SUB_BUCKETS - 1));
+    var lower = (1L << exp) | (sub << (exp - SUB_BITS));
+    return lower + (1L << (exp - SUB_BITS)) - 1;
+  }
+
+  public void record(long nanos) {
+    if (nanos < 0) nanos = 0;
+    counts.incrementAndGet(index(nanos));
+    count.increment();
+    sum.add(nanos);
+    max.accumulateAndGet(nanos, Math::max);
+  }
+
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  public long sum() {
+    return sum.sum();
+  }
+
+  public long max() {
+    return max.get();
+  }
+
+  /**
+   * Estimates the given quantile (0 to 1). Concurrent recordings may or may not be included, which
+   * is fine for reporting.
+   */
+  public long quantile(double q) {
+    long total = 0;
+    var snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) return 0;
+
+    var target = Math.max(1, (long) Math.ceil(q * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= target) return Math.min(upperBound(i), max());
+    }
+    return max();
+  }
+}
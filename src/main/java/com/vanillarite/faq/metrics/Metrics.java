@@ -0,0 +1,115 @@
+package com.vanillarite.faq.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Registry of every counter and histogram the plugin keeps. Callers look their metrics up once and
+ * hold on to them, so recording never touches the registry. Names and labels follow Prometheus
+ * conventions, since that's one of the ways they get exported.
+ */
+public final class Metrics {
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+  private final Map<String, Series> series = new ConcurrentSkipListMap<>();
+  private final Map<String, Map<String, RequestStats>> requests = new ConcurrentHashMap<>();
+
+  private static String labels(String[] labels) {
+    if (labels.length % 2 != 0) throw new IllegalArgumentException("Labels must be key/value pairs");
+    var s = new StringBuilder();
+    for (int i = 0; i < labels.length; i += 2) {
+      if (i > 0) s.append(',');
+      s.append(labels[i]).append("=\"").append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+    }
+    return s.toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T register(String name, String[] labels, Supplier<T> create) {
+    var rendered = labels(labels);
+    return (T) series.computeIfAbsent(name + "{" + rendered + "}", k -> new Series(name, rendered, create.get())).metric();
+  }
+
+  public LongAdder counter(String name, String... labels) {
+    return register(name, labels, LongAdder::new);
+  }
+
+  public Histogram histogram(String name, String... labels) {
+    return register(name, labels, Histogram::new);
+  }
+
+  public CacheStats cache(String cache) {
+    return new CacheStats(
+        counter("faq_cache_hits_total", "cache", cache),
+        counter("faq_cache_misses_total", "cache", cache),
+        counter("faq_cache_load_failures_total", "cache", cache),
+        histogram("faq_cache_load_seconds", "cache", cache)
+    );
+  }
+
+  public RequestStats request(String method, String endpoint) {
+    var byEndpoint = requests.get(method);
+    if (byEndpoint == null) byEndpoint = requests.computeIfAbsent(method, k -> new ConcurrentHashMap<>());
+    var stats = byEndpoint.get(endpoint);
+    if (stats == null) stats = byEndpoint.computeIfAbsent(endpoint, k -> new RequestStats(this, method, endpoint));
+    return stats;
+  }
+
+  private static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.2fms", nanos / 1e6);
+  }
+
+  private static String seconds(long nanos) {
+    return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+  }
+
+  /** One human-readable line per series, skipping anything that never happened. */
+  public List<String> describe() {
+    var lines = new ArrayList<String>();
+    series.forEach((key, s) -> {
+      if (s.metric() instanceof LongAdder counter) {
+        var value = counter.sum();
+        if (value != 0) lines.add("%s = %s".formatted(key, value));
+      } else if (s.metric() instanceof Histogram h && h.count() != 0) {
+        lines.add("%s n=%s p50=%s p90=%s p99=%s max=%s".formatted(
+            key, h.count(), millis(h.quantile(0.5)), millis(h.quantile(0.9)), millis(h.quantile(0.99)), millis(h.max())
+        ));
+      }
+    });
+    return lines;
+  }
+
+  /** Everything in the Prometheus text exposition format, with histograms as summaries. */
+  public String prometheus() {
+    var out = new StringBuilder();
+    String lastName = null;
+    for (var s : series.values()) {
+      var isCounter = s.metric() instanceof LongAdder;
+      if (!s.name().equals(lastName)) {
+        out.append("# TYPE ").append(s.name()).append(isCounter ? " counter\n" : " summary\n");
+        lastName = s.name();
+      }
+
+      if (s.metric() instanceof LongAdder counter) {
+        out.append(s.name()).append('{').append(s.labels()).append("} ").append(counter.sum()).append('\n');
+      } else if (s.metric() instanceof Histogram h) {
+        var separator = s.labels().isEmpty() ? "" : ",";
+        for (var q : QUANTILES) {
+          out.append(s.name()).append('{').append(s.labels()).append(separator)
+              .append("quantile=\"").append(q).append("\"} ").append(seconds(h.quantile(q))).append('\n');
+        }
+        out.append(s.name()).append("_sum{").append(s.labels()).append("} ").append(seconds(h.sum())).append('\n');
+        out.append(s.name()).append("_count{").append(s.labels()).append("} ").append(h.count()).append('\n');
+      }
+    }
+    return out.toString();
+  }
+
+  private record Series(String name, String labels, Object metric) {}
+}
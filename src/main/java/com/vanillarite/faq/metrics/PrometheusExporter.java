@@ -0,0 +1,35 @@
+package com.vanillarite.faq.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+
+/** Serves {@link Metrics#prometheus()} on {@code /metrics}, meant to be bound to localhost only. */
+public final class PrometheusExporter {
+  private final HttpServer server;
+
+  public PrometheusExporter(Metrics metrics, InetSocketAddress address, Executor executor) throws IOException {
+    this.server = HttpServer.create(address, 0);
+    server.createContext("/metrics", exchange -> {
+      try (exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+          exchange.sendResponseHeaders(405, -1);
+          return;
+        }
+        var body = metrics.prometheus().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("content-type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+      }
+    });
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,31 @@
+package com.vanillarite.faq.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Latency and outcomes of requests to one Supabase endpoint with one HTTP method. */
+public final class RequestStats {
+  private final Histogram latency;
+  private final LongAdder[] byStatusClass = new LongAdder[5];
+  private final LongAdder failures;
+
+  RequestStats(Metrics metrics, String method, String endpoint) {
+    this.latency = metrics.histogram("faq_supabase_request_seconds", "method", method, "endpoint", endpoint);
+    for (int i = 0; i < byStatusClass.length; i++) {
+      byStatusClass[i] = metrics.counter(
+          "faq_supabase_responses_total", "method", method, "endpoint", endpoint, "status", (i + 1) + "xx");
+    }
+    this.failures = metrics.counter("faq_supabase_request_failures_total", "method", method, "endpoint", endpoint);
+  }
+
+  public void response(int status, long startNanos) {
+    latency.recordSince(startNanos);
+    var statusClass = status / 100 - 1;
+    if (statusClass >= 0 && statusClass < byStatusClass.length) byStatusClass[statusClass].increment();
+  }
+
+  /** The request never got a response, e.g. it timed out or the connection broke. */
+  public void failure(long startNanos) {
+    latency.recordSince(startNanos);
+    failures.increment();
+  }
+}
@@ -3,75 +3,115 @@ package com.vanillarite.faq.storage;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
 import com.vanillarite.faq.FaqPlugin;
 import com.vanillarite.faq.storage.supabase.Field;
 import com.vanillarite.faq.storage.supabase.Method;
 import com.vanillarite.faq.storage.supabase.SupabaseConnection;
+import com.vanillarite.faq.storage.supabase.SupabaseException;
 import com.vanillarite.faq.util.SingleCache;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.http.HttpClient;
+import java.io.UncheckedIOException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
-import static com.google.gson.JsonParser.parseReader;
-
-public class FaqCache extends SingleCache<ArrayList<Topic>> {
+public class FaqCache extends SingleCache<FaqSnapshot> {
+  public static final int HISTORY_PAGE_SIZE = 20;
   private final FaqPlugin plugin;
+  private final HistoryPageCache historyPages = new HistoryPageCache(64, 1, TimeUnit.MINUTES);
 
   public FaqCache(
       Callable<ArrayList<Topic>> supplier, long duration, TimeUnit unit, FaqPlugin plugin) {
-    super(supplier, duration, unit);
+    super(() -> {
+      var topics = supplier.call();
+      return topics == null ? null : new FaqSnapshot(topics);
+    }, duration, unit, plugin.storageExecutor(), plugin.metrics().cache("faqs"));
     this.plugin = plugin;
   }
 
   public Topic find(int id) {
-    return get().stream().filter(i -> i.id() == id).findFirst().orElseThrow();
+    return get().byId(id).orElseThrow();
   }
 
+  /**
+   * Fetches a single topic straight from Supabase and swaps it into the cached snapshot, without
+   * reloading the rest of the table.
+   */
   public Topic findNow(int id) {
-    return invalidateAndGet().stream().filter(i -> i.id() == id).findFirst().orElseThrow();
+    var fresh = supabaseGetSingle(plugin.supabase(), id)
+        .orElseThrow(() -> new UncheckedIOException(new IOException("Couldn't reach Supabase to get #" + id)));
+    apply(fresh);
+    return fresh;
   }
 
-  public Optional<Topic> findTopicOrAlias(String topic) {
-    var direct =
-        get().stream()
-            .filter(i -> !i.content().isBlank())
-            .filter(
-                i ->
-                    i.topic().equalsIgnoreCase(topic)
-                        || i.alias().stream().anyMatch(a -> a.equalsIgnoreCase(topic)))
-            .findFirst();
-    if (direct.isPresent()) return direct;
-    else {
-      var close =
-          get().stream()
-              .filter(i -> !i.content().isBlank())
-              .filter(
-                  i ->
-                      i.topic().toLowerCase().startsWith(topic.toLowerCase())
-                          || i.alias().stream()
-                              .anyMatch(a -> a.toLowerCase().startsWith(topic.toLowerCase())))
-              .toList();
-      if (close.size() == 1) {
-        return Optional.of(close.get(0));
-      } else {
-        return Optional.empty();
+  /** Like {@link #findNow}, without blocking the caller. */
+  public CompletableFuture<Optional<Topic>> fetch(int id) {
+    return async(() -> Optional.of(findNow(id)), Optional.empty());
+  }
+
+  /**
+   * Puts an updated copy of a topic into the cached snapshot. A newer version than the cached one
+   * means it was modified, possibly by another server, so its history pages are dropped too.
+   */
+  public void apply(Topic topic) {
+    update(s -> {
+      var known = s.byId(topic.id());
+      if (known.isEmpty() || topic.updatedAt().isAfter(known.get().updatedAt())) {
+        historyPages.invalidate(topic.id());
       }
-    }
+      return s.with(topic);
+    });
+  }
+
+  public void remove(int id) {
+    update(s -> s.without(id));
+    historyPages.invalidate(id);
+  }
+
+  /** Drops every cached history page, for when history changed in ways {@link #logHistory} didn't see. */
+  public void clearHistoryPages() {
+    historyPages.clear();
   }
 
-  public Stream<Topic> getIgnoreEmpty() {
-    return get().stream().filter(i -> !i.content().isBlank());
+  public Optional<Topic> findTopicOrAlias(String topic) {
+    return get().lookup(topic);
+  }
+
+  private <T> CompletableFuture<T> async(Supplier<T> task, T onFailure) {
+    return CompletableFuture.supplyAsync(task, plugin.storageExecutor())
+        .exceptionally(e -> {
+          plugin.getSLF4JLogger().error("Supabase request failed", e);
+          return onFailure;
+        });
+  }
+
+  private static JsonReader reader(HttpResponse<InputStream> response) {
+    return new JsonReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+  }
+
+  private static Topic readTopic(HttpResponse<InputStream> response) throws IOException {
+    try (var reader = reader(response)) {
+      return Topic.read(reader);
+    }
   }
 
   @Override
@@ -80,19 +120,89 @@ public class FaqCache extends SingleCache<ArrayList<Topic>> {
     super.invalidate();
   }
 
-  public Optional<ArrayList<History>> supabaseGetHistoryForFaq(SupabaseConnection sb, int forFaq) {
+  /** A page of a FAQ's history, from the page cache if it was viewed recently. */
+  public CompletableFuture<Optional<HistoryPage>> historyPage(int faq, int page) {
+    var cached = historyPages.get(faq, page);
+    if (cached != null) return CompletableFuture.completedFuture(Optional.of(cached));
+
+    var version = historyPages.version();
+    return async(() -> {
+      var fetched = supabaseGetHistoryPage(plugin.supabase(), faq, page, HISTORY_PAGE_SIZE);
+      fetched.ifPresent(p -> historyPages.put(p, version));
+      return fetched;
+    }, Optional.empty());
+  }
+
+  /**
+   * Fetches one page of history, newest first. Content and preface bodies are left out, since the
+   * listing only needs them once a row is inspected, and they're the bulk of the table.
+   */
+  public Optional<HistoryPage> supabaseGetHistoryPage(SupabaseConnection sb, int forFaq, int page, int pageSize) {
     try {
-      HttpRequest faqListRequest = sb.request("history?faq=eq." + forFaq).GET().build();
-      HttpResponse<InputStream> faqList =
-          HttpClient.newHttpClient()
-              .send(faqListRequest, HttpResponse.BodyHandlers.ofInputStream());
+      HttpRequest pageRequest = sb.request(
+              "history?faq=eq.%s&select=id,faq,author,method,field,timestamp&order=timestamp.desc,id.desc&limit=%s&offset=%s"
+                  .formatted(forFaq, pageSize, (page - 1) * pageSize))
+          .header("prefer", "count=exact")
+          .GET()
+          .build();
+      HttpResponse<InputStream> pageResponse =
+          sb.send(pageRequest, HttpResponse.BodyHandlers.ofInputStream());
+
+      if (pageResponse.statusCode() >= 300) {
+        throw new IllegalStateException(
+            "Failed to get history of #%s? Got %s - %s"
+                .formatted(forFaq, pageResponse.statusCode(), new String(pageResponse.body().readAllBytes())));
+      }
+
+      var entries = new ArrayList<History>();
+      try (var reader = reader(pageResponse)) {
+        reader.beginArray();
+        while (reader.hasNext()) entries.add(History.read(reader));
+        reader.endArray();
+      }
 
-      JsonElement root = parseReader(new InputStreamReader(faqList.body(), StandardCharsets.UTF_8));
-      JsonArray faqListObject = root.getAsJsonArray();
+      // Content-Range looks like "0-19/57", or "*/0" for an empty page
+      var pageCount = pageResponse.headers().firstValue("content-range")
+          .map(range -> range.substring(range.indexOf('/') + 1))
+          .filter(total -> !total.equals("*"))
+          .map(total -> (Integer.parseInt(total) + pageSize - 1) / pageSize)
+          .orElse(0);
+
+      // Other fields are short and shown inline, so fetch their bodies straight away
+      var inline = entries.stream()
+          .filter(h -> h.field() != Field.CONTENT && h.field() != Field.PREFACE)
+          .map(h -> String.valueOf(h.id()))
+          .toList();
+      if (!inline.isEmpty()) {
+        HttpRequest bodiesRequest =
+            sb.request("history?id=in.(%s)&select=id,before,after".formatted(String.join(",", inline)))
+                .GET()
+                .build();
+        HttpResponse<InputStream> bodiesResponse =
+            sb.send(bodiesRequest, HttpResponse.BodyHandlers.ofInputStream());
+
+        if (bodiesResponse.statusCode() >= 300) {
+          throw new IllegalStateException(
+              "Failed to get history of #%s? Got %s - %s"
+                  .formatted(forFaq, bodiesResponse.statusCode(), new String(bodiesResponse.body().readAllBytes())));
+        }
+
+        var bodies = new HashMap<Integer, History>();
+        try (var reader = reader(bodiesResponse)) {
+          reader.beginArray();
+          while (reader.hasNext()) {
+            var row = History.read(reader);
+            bodies.put(row.id(), row);
+          }
+          reader.endArray();
+        }
+        entries.replaceAll(h -> {
+          var row = bodies.get(h.id());
+          return row == null || row.after() == null ? h : h.withBodies(row.before(), row.after());
+        });
+      }
 
-      var history = new ArrayList<History>();
-      faqListObject.forEach((json) -> history.add(History.fromJson(json.getAsJsonObject())));
-      return Optional.of(history);
+      return Optional.of(new HistoryPage(forFaq, page, pageCount, List.copyOf(entries)));
     } catch (IOException | InterruptedException e) {
       e.printStackTrace();
       return Optional.empty();
@@ -103,13 +213,11 @@ public class FaqCache extends SingleCache<ArrayList<Topic>> {
     try {
       HttpRequest faqListRequest = sb.single("history?id=eq." + id).GET().build();
       HttpResponse<InputStream> faqList =
-          HttpClient.newHttpClient()
-              .send(faqListRequest, HttpResponse.BodyHandlers.ofInputStream());
-
-      JsonElement root = parseReader(new InputStreamReader(faqList.body(), StandardCharsets.UTF_8));
-      JsonObject newFaqObject = root.getAsJsonObject();
+          sb.send(faqListRequest, HttpResponse.BodyHandlers.ofInputStream());
 
-      return Optional.of(History.fromJson(newFaqObject));
+      try (var reader = reader(faqList)) {
+        return Optional.of(History.read(reader));
+      }
     } catch (IOException | InterruptedException e) {
       e.printStackTrace();
       return Optional.empty();
@@ -120,127 +228,170 @@ public class FaqCache extends SingleCache<ArrayList<Topic>> {
     try {
       HttpRequest faqListRequest = sb.request("faqs?active=is.true").GET().build();
       HttpResponse<InputStream> faqList =
-          HttpClient.newHttpClient()
-              .send(faqListRequest, HttpResponse.BodyHandlers.ofInputStream());
+          sb.send(faqListRequest, HttpResponse.BodyHandlers.ofInputStream());
+
+      try (var reader = reader(faqList)) {
+        var topics = new ArrayList<Topic>();
+        reader.beginArray();
+        while (reader.hasNext()) topics.add(Topic.read(reader));
+        reader.endArray();
+        return Optional.of(topics);
+      }
+    } catch (IOException | InterruptedException e) {
+      e.printStackTrace();
+      return Optional.empty();
+    }
+  }
 
-      JsonElement root = parseReader(new InputStreamReader(faqList.body(), StandardCharsets.UTF_8));
-      JsonArray faqListObject = root.getAsJsonArray();
+  public Optional<Topic> supabaseGetSingle(SupabaseConnection sb, int id) {
+    try {
+      HttpRequest faqRequest = sb.single("faqs?active=is.true&id=eq." + id).GET().build();
+      HttpResponse<InputStream> faq =
+          sb.send(faqRequest, HttpResponse.BodyHandlers.ofInputStream());
+
+      if (faq.statusCode() >= 300) {
+        throw new SupabaseException(
+            "Failed to get #%s? Got %s - %s"
+                .formatted(id, faq.statusCode(), new String(faq.body().readAllBytes())),
+            faq.statusCode());
+      }
 
-      var topics = new ArrayList<Topic>();
-      faqListObject.forEach((json) -> topics.add(Topic.fromJson(json.getAsJsonObject())));
-      return Optional.of(topics);
+      return Optional.of(readTopic(faq));
     } catch (IOException | InterruptedException e) {
       e.printStackTrace();
       return Optional.empty();
     }
   }
 
-  public void logHistory(
-      SupabaseConnection sb,
-      int id,
-      Method method,
-      Field field,
-      String before,
-      String after,
-      UUID author)
+  public void logHistory(SupabaseConnection sb, HistoryBatch batch)
       throws IOException, InterruptedException {
-    var body = new JsonObject();
-    body.addProperty("faq", id);
-    body.addProperty("author", author.toString());
-    body.addProperty("method", method.name());
-    body.addProperty("field", field.name());
-    body.addProperty("before", before);
-    body.addProperty("after", after);
+    if (batch.isEmpty()) return;
 
     HttpRequest faqListRequest =
-        sb.request("history").POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+        sb.request("history")
+            .POST(HttpRequest.BodyPublishers.ofString(batch.toJson().toString()))
+            .build();
     HttpResponse<String> faqList =
-        HttpClient.newHttpClient().send(faqListRequest, HttpResponse.BodyHandlers.ofString());
+        sb.send(faqListRequest, HttpResponse.BodyHandlers.ofString());
 
     if (faqList.statusCode() != 201)
       throw new IllegalStateException(
           "Couldn't log operation, got %s - %s".formatted(faqList.statusCode(), faqList.body()));
 
-    plugin.debug(
-        "FAQ modification has been logged: #%s %s %s by %s; %s chars -> %s chars"
-            .formatted(
-                id,
-                method,
-                field,
-                author,
-                (before == null ? "empty" : before.length()),
-                after.length()));
+    batch.faqs().forEach(historyPages::invalidate);
+    batch.summaries().forEach(i -> plugin.debug("FAQ modification has been logged: " + i));
   }
 
-  public Optional<Topic> supabasePatch(
-      SupabaseConnection sb, int id, Field key, String newValue, UUID author) {
-    try {
-      var existing = findNow(id);
-      logHistory(sb, id, Method.PATCH, key, existing.findField(key), newValue, author);
-
-      var body = new JsonObject();
-      body.addProperty(key.name().toLowerCase(), newValue);
-
-      HttpRequest faqListRequest =
-          sb.single("faqs?active=is.true&id=eq." + id)
-              .method("PATCH", HttpRequest.BodyPublishers.ofString(body.toString()))
-              .build();
-      HttpResponse<InputStream> faqList =
-          HttpClient.newHttpClient()
-              .send(faqListRequest, HttpResponse.BodyHandlers.ofInputStream());
+  /** What to write to one field, worked out from the version of the topic being modified. */
+  private record Change(Method method, JsonElement value, @Nullable String before, String after) {}
 
-      if (faqList.statusCode() >= 300) {
-        throw new IllegalStateException(
-            "Failed to patch? Got %s - %s"
-                .formatted(faqList.statusCode(), new String(faqList.body().readAllBytes())));
-      }
-
-      JsonElement root = parseReader(new InputStreamReader(faqList.body(), StandardCharsets.UTF_8));
-      JsonObject newFaqObject = root.getAsJsonObject();
+  /**
+   * PATCHes the topic only if it's still at the version the caller based the change on, and
+   * returns the updated row, or nothing if it has changed in the meantime (or was deleted).
+   */
+  Optional<Topic> patchIfUnchanged(SupabaseConnection sb, Topic base, JsonObject body)
+      throws IOException, InterruptedException {
+    // Bump the version ourselves, so the precondition works even without a trigger doing it. It has
+    // to move forward even if our clock is behind whoever wrote last, or snapshots would ignore it
+    var now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    var next = base.updatedAt().truncatedTo(ChronoUnit.MICROS).plus(1, ChronoUnit.MICROS);
+    body.addProperty("updated_at", (now.isAfter(next) ? now : next).toString());
+    HttpRequest patchRequest =
+        sb.request("faqs?active=is.true&id=eq.%s&updated_at=eq.%s".formatted(base.id(), base.updatedAt()))
+            .header("prefer", "return=representation")
+            .method("PATCH", HttpRequest.BodyPublishers.ofString(body.toString()))
+            .build();
+    HttpResponse<InputStream> patchResponse =
+        sb.send(patchRequest, HttpResponse.BodyHandlers.ofInputStream());
+
+    if (patchResponse.statusCode() >= 300) {
+      throw new SupabaseException(
+          "Failed to patch? Got %s - %s"
+              .formatted(patchResponse.statusCode(), new String(patchResponse.body().readAllBytes())),
+          patchResponse.statusCode());
+    }
 
-      invalidate();
-      return Optional.of(Topic.fromJson(newFaqObject));
-    } catch (IOException | InterruptedException e) {
-      e.printStackTrace();
-      return Optional.empty();
+    try (var reader = reader(patchResponse)) {
+      Topic updated = null;
+      reader.beginArray();
+      while (reader.hasNext()) updated = Topic.read(reader);
+      reader.endArray();
+      return Optional.ofNullable(updated);
     }
   }
 
-  public Optional<Topic> supabasePatchComplex(
-      SupabaseConnection sb, int id, Field key, String newValue, JsonElement element, UUID author) {
-    try {
-      var existing = findNow(id);
-      logHistory(sb, id, Method.PATCH, key, existing.findField(key), newValue, author);
+  /**
+   * Writes one field as a compare-and-set against {@code seen} (or the cached version, if the
+   * caller didn't see a specific one), then logs it to history.
+   *
+   * <p>If the topic changed in the meantime, the change is retried once on top of the new version,
+   * as long as that can't lose anything: either the change is {@code mergeable} (it's recomputed
+   * from the new version, like adding an alias), or the other write didn't touch this field.
+   * Otherwise the result is a {@link WriteResult.Conflict}.
+   */
+  private WriteResult patchField(
+      SupabaseConnection sb,
+      int id,
+      @Nullable Topic seen,
+      Field key,
+      UUID author,
+      boolean mergeable,
+      Function<Topic, Change> change) throws IOException, InterruptedException {
+    var base = seen != null ? seen : get().byId(id).orElseGet(() -> findNow(id));
 
+    for (int attempt = 0; ; attempt++) {
+      var c = change.apply(base);
       var body = new JsonObject();
-      body.add(key.name().toLowerCase(), element);
+      body.add(key.name().toLowerCase(), c.value());
+
+      var updated = patchIfUnchanged(sb, base, body);
+      if (updated.isPresent()) {
+        apply(updated.get());
+        try {
+          logHistory(sb, new HistoryBatch(author).add(id, c.method(), key, c.before(), c.after()));
+        } catch (RuntimeException e) {
+          plugin.getSLF4JLogger().error("#%s was modified, but logging it to history failed".formatted(id), e);
+        }
+        return new WriteResult.Success(updated.get());
+      }
 
-      HttpRequest faqListRequest =
-          sb.single("faqs?active=is.true&id=eq." + id)
-              .method("PATCH", HttpRequest.BodyPublishers.ofString(body.toString()))
-              .build();
-      HttpResponse<InputStream> faqList =
-          HttpClient.newHttpClient()
-              .send(faqListRequest, HttpResponse.BodyHandlers.ofInputStream());
+      var current = findNow(id);
+      // Whoever retries should start from what's actually there now
+      apply(current);
+      plugin.debug("#%s changed while modifying %s (expected %s, found %s)".formatted(id, key, base.updatedAt(), current.updatedAt()));
+      var untouched = Objects.equals(current.findField(key), base.findField(key));
+      if (attempt > 0 || !(mergeable || untouched)) return new WriteResult.Conflict(current);
+      base = current;
+    }
+  }
 
-      if (faqList.statusCode() >= 300) {
-        throw new IllegalStateException(
-            "Failed to patch? Got %s - %s"
-                .formatted(faqList.statusCode(), new String(faqList.body().readAllBytes())));
+  public CompletableFuture<WriteResult> supabasePatch(
+      SupabaseConnection sb, int id, @Nullable Topic seen, Field key, String newValue, UUID author) {
+    return async(() -> {
+      try {
+        return patchField(sb, id, seen, key, author, false, base ->
+            new Change(Method.PATCH, new JsonPrimitive(newValue), base.findField(key), newValue));
+      } catch (IOException | InterruptedException e) {
+        e.printStackTrace();
+        return new WriteResult.Failure();
       }
+    }, new WriteResult.Failure());
+  }
 
-      JsonElement root = parseReader(new InputStreamReader(faqList.body(), StandardCharsets.UTF_8));
-      JsonObject newFaqObject = root.getAsJsonObject();
-
-      invalidate();
-      return Optional.of(Topic.fromJson(newFaqObject));
-    } catch (IOException | InterruptedException e) {
-      e.printStackTrace();
-      return Optional.empty();
-    }
+  public CompletableFuture<WriteResult> supabasePatchComplex(
+      SupabaseConnection sb, int id, Field key, String newValue, JsonElement element, UUID author) {
+    return async(() -> {
+      try {
+        return patchField(sb, id, null, key, author, false, base ->
+            new Change(Method.PATCH, element, base.findField(key), newValue));
+      } catch (IOException | InterruptedException e) {
+        e.printStackTrace();
+        return new WriteResult.Failure();
+      }
+    }, new WriteResult.Failure());
   }
 
-  public Optional<Topic> supabasePatchArray(
+  public CompletableFuture<WriteResult> supabasePatchArray(
       SupabaseConnection sb,
       int id,
       Field key,
@@ -251,113 +402,92 @@ public class FaqCache extends SingleCache<ArrayList<Topic>> {
       throw new IllegalStateException();
     }
 
-    try {
-      var existing = findNow(id);
-
-      logHistory(
-          sb,
-          id,
-          actualMethod,
-          key,
-          (actualMethod == Method.POST ? null : modifiedEntry),
-          (actualMethod == Method.DELETE ? "" : modifiedEntry),
-          author);
-      var newValue = existing.findArrayField(key);
-      if (actualMethod == Method.POST) newValue.add(modifiedEntry);
-      if (actualMethod == Method.DELETE) newValue.remove(modifiedEntry);
-
-      var body = new JsonObject();
-      var arrBody = new JsonArray();
-      newValue.forEach(arrBody::add);
-      body.add(key.name().toLowerCase(), arrBody);
-
-      HttpRequest faqListRequest =
-          sb.single("faqs?active=is.true&id=eq." + id)
-              .method("PATCH", HttpRequest.BodyPublishers.ofString(body.toString()))
-              .build();
-      HttpResponse<InputStream> faqList =
-          HttpClient.newHttpClient()
-              .send(faqListRequest, HttpResponse.BodyHandlers.ofInputStream());
-
-      if (faqList.statusCode() >= 300) {
-        throw new IllegalStateException(
-            "Failed to patch? Got %s - %s"
-                .formatted(faqList.statusCode(), new String(faqList.body().readAllBytes())));
+    return async(() -> {
+      try {
+        // Adding or removing one entry can always be redone on top of someone else's change
+        return patchField(sb, id, null, key, author, true, base -> {
+          var newValue = base.findArrayField(key);
+          if (actualMethod == Method.POST) newValue.add(modifiedEntry);
+          if (actualMethod == Method.DELETE) newValue.remove(modifiedEntry);
+
+          var arrBody = new JsonArray();
+          newValue.forEach(arrBody::add);
+          return new Change(
+              actualMethod,
+              arrBody,
+              (actualMethod == Method.POST ? null : modifiedEntry),
+              (actualMethod == Method.DELETE ? "" : modifiedEntry));
+        });
+      } catch (IOException | InterruptedException e) {
+        e.printStackTrace();
+        return new WriteResult.Failure();
       }
-
-      JsonElement root = parseReader(new InputStreamReader(faqList.body(), StandardCharsets.UTF_8));
-      JsonObject newFaqObject = root.getAsJsonObject();
-
-      invalidate();
-      return Optional.of(Topic.fromJson(newFaqObject));
-    } catch (IOException | InterruptedException e) {
-      e.printStackTrace();
-      return Optional.empty();
-    }
+    }, new WriteResult.Failure());
   }
 
-  public Optional<Topic> supabasePost(SupabaseConnection sb, String topic, UUID author) {
-    try {
-      var body = new JsonObject();
-      body.addProperty("topic", topic);
-      body.addProperty("content", "");
-      body.addProperty("author", author.toString());
-
-      HttpRequest faqListRequest =
-          sb.single("faqs").POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
-      HttpResponse<InputStream> faqList =
-          HttpClient.newHttpClient()
-              .send(faqListRequest, HttpResponse.BodyHandlers.ofInputStream());
-
-      if (faqList.statusCode() >= 300) {
-        throw new IllegalStateException(
-            "Failed to post? Got %s - %s"
-                .formatted(faqList.statusCode(), new String(faqList.body().readAllBytes())));
+  public CompletableFuture<Optional<Topic>> supabasePost(SupabaseConnection sb, String topic, UUID author) {
+    return async(() -> {
+      try {
+        var body = new JsonObject();
+        body.addProperty("topic", topic);
+        body.addProperty("content", "");
+        body.addProperty("author", author.toString());
+
+        HttpRequest faqListRequest =
+            sb.single("faqs").POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+        HttpResponse<InputStream> faqList =
+            sb.send(faqListRequest, HttpResponse.BodyHandlers.ofInputStream());
+
+        if (faqList.statusCode() >= 300) {
+          throw new IllegalStateException(
+              "Failed to post? Got %s - %s"
+                  .formatted(faqList.statusCode(), new String(faqList.body().readAllBytes())));
+        }
+
+        var newTopic = readTopic(faqList);
+        // logging must be done after because we don't know the ID yet
+        logHistory(sb, new HistoryBatch(author).add(newTopic.id(), Method.POST, Field.TOPIC, null, topic));
+
+        apply(newTopic);
+        return Optional.of(newTopic);
+      } catch (IOException | InterruptedException e) {
+        e.printStackTrace();
+        return Optional.empty();
       }
-
-      JsonElement root = parseReader(new InputStreamReader(faqList.body(), StandardCharsets.UTF_8));
-      JsonObject newFaqObject = root.getAsJsonObject();
-
-      var newTopic = Topic.fromJson(newFaqObject);
-      // logging must be done after because we don't know the ID yet
-      logHistory(sb, newTopic.id(), Method.POST, Field.TOPIC, null, topic, author);
-
-      invalidate();
-      return Optional.of(newTopic);
-    } catch (IOException | InterruptedException e) {
-      e.printStackTrace();
-      return Optional.empty();
-    }
+    }, Optional.empty());
   }
 
-  public boolean supabaseDelete(SupabaseConnection sb, int id, UUID author) {
-    try {
-      var existing = findNow(id);
-      logHistory(sb, id, Method.DELETE, Field.TOPIC, existing.topic(), "", author);
-      logHistory(sb, id, Method.DELETE, Field.CONTENT, existing.content(), "", author);
-      logHistory(sb, id, Method.DELETE, Field.PREFACE, existing.preface(), "", author);
-
-      var body = new JsonObject();
-      body.addProperty("active", false);
-      body.addProperty("topic", "~." + System.currentTimeMillis() + "." + existing.topic());
-
-      HttpRequest faqListRequest =
-          sb.single("faqs?active=is.true&id=eq." + id)
-              .method("PATCH", HttpRequest.BodyPublishers.ofString(body.toString()))
-              .build();
-      HttpResponse<String> faqList =
-          HttpClient.newHttpClient().send(faqListRequest, HttpResponse.BodyHandlers.ofString());
-
-      if (faqList.statusCode() >= 300) {
-        throw new IllegalStateException(
-            "Failed to delete? Got %s - %s".formatted(faqList.statusCode(), faqList.body()));
+  public CompletableFuture<Boolean> supabaseDelete(SupabaseConnection sb, int id, UUID author) {
+    return async(() -> {
+      try {
+        var existing = findNow(id);
+        logHistory(sb, new HistoryBatch(author)
+            .add(id, Method.DELETE, Field.TOPIC, existing.topic(), "")
+            .add(id, Method.DELETE, Field.CONTENT, existing.content(), "")
+            .add(id, Method.DELETE, Field.PREFACE, existing.preface(), ""));
+
+        var body = new JsonObject();
+        body.addProperty("active", false);
+        body.addProperty("topic", "~." + System.currentTimeMillis() + "." + existing.topic());
+
+        HttpRequest faqListRequest =
+            sb.single("faqs?active=is.true&id=eq." + id)
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        HttpResponse<String> faqList =
+            sb.send(faqListRequest, HttpResponse.BodyHandlers.ofString());
+
+        if (faqList.statusCode() >= 300) {
+          throw new IllegalStateException(
+              "Failed to delete? Got %s - %s".formatted(faqList.statusCode(), faqList.body()));
+        }
+
+        remove(id);
+        return true;
+      } catch (IOException | InterruptedException e) {
+        e.printStackTrace();
+        return false;
       }
-
-      invalidate();
-      return true;
-    } catch (IOException | InterruptedException e) {
-      e.printStackTrace();
-      return false;
-    }
+    }, false);
   }
 }
@@ -0,0 +1,194 @@
+package com.vanillarite.faq.storage;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Immutable view of the FAQ table as of one cache load, along with the lookup indexes derived from
+ * it. A new snapshot is built every time the backing {@link FaqCache} reloads, so lookups never
+ * have to rescan or re-case-fold the topic list.
+ */
+public final class FaqSnapshot {
+  private final List<Topic> topics;
+  private final List<Topic> visible;
+  private final Map<Integer, Topic> byId;
+  private final Map<String, Topic> byKey;
+  private final Set<String> allKeys;
+  private final PrefixIndex visibleIndex;
+  private final List<String> groups;
+  private final Map<String, PrefixIndex> completionByGroup;
+  private volatile FuzzyIndex fuzzyIndex;
+  private volatile SearchIndex searchIndex;
+  private volatile @Nullable SearchIndex previousSearchIndex;
+
+  public FaqSnapshot(List<Topic> topics) {
+    this(topics, null);
+  }
+
+  private FaqSnapshot(List<Topic> topics, @Nullable SearchIndex previousSearchIndex) {
+    this.previousSearchIndex = previousSearchIndex;
+    this.topics = Collections.unmodifiableList(new ArrayList<>(topics));
+
+    var visible = new ArrayList<Topic>();
+    var byId = new HashMap<Integer, Topic>();
+    var byKey = new HashMap<String, Topic>();
+    var allKeys = new HashSet<String>();
+    var byGroup = new HashMap<String, List<Topic>>();
+
+    for (var t : this.topics) {
+      byId.put(t.id(), t);
+      byGroup.computeIfAbsent(t.group(), k -> new ArrayList<>()).add(t);
+      allKeys.add(fold(t.topic()));
+      t.alias().forEach(a -> allKeys.add(fold(a)));
+      if (t.content().isBlank()) continue;
+
+      visible.add(t);
+      // Topics earlier in the list win, just like the linear scan this replaces
+      byKey.putIfAbsent(fold(t.topic()), t);
+      t.alias().forEach(a -> byKey.putIfAbsent(fold(a), t));
+    }
+
+    this.visible = Collections.unmodifiableList(visible);
+    this.byId = Map.copyOf(byId);
+    this.byKey = Map.copyOf(byKey);
+    this.allKeys = Set.copyOf(allKeys);
+    this.visibleIndex = new PrefixIndex(visible);
+    this.groups = byGroup.keySet().stream().sorted().toList();
+
+    var completionByGroup = new HashMap<String, PrefixIndex>();
+    byGroup.forEach((group, members) -> completionByGroup.put(group, new PrefixIndex(members)));
+    this.completionByGroup = Map.copyOf(completionByGroup);
+  }
+
+  /**
+   * A copy of this snapshot with a single topic inserted or replaced. Inactive (deleted) topics are
+   * dropped instead, matching what a full reload would return. A topic older than the one already
+   * here (a late Realtime event, say) is ignored, so the snapshot never goes back in time.
+   */
+  public FaqSnapshot with(Topic topic) {
+    var existing = byId.get(topic.id());
+    if (existing != null && existing.updatedAt().isAfter(topic.updatedAt())) return this;
+
+    var updated = new ArrayList<Topic>(topics.size() + 1);
+    for (var t : topics) {
+      if (t.id() != topic.id()) updated.add(t);
+    }
+    if (topic.active()) updated.add(topic);
+    updated.sort(Comparator.comparingInt(Topic::id));
+    return new FaqSnapshot(updated, reusableSearchIndex());
+  }
+
+  public FaqSnapshot without(int id) {
+    return new FaqSnapshot(topics.stream().filter(t -> t.id() != id).toList(), reusableSearchIndex());
+  }
+
+  private @Nullable SearchIndex reusableSearchIndex() {
+    var index = searchIndex;
+    return index != null ? index : previousSearchIndex;
+  }
+
+  public static String fold(String s) {
+    return s.toLowerCase(Locale.ROOT);
+  }
+
+  /** All active topics, including ones without any content yet. */
+  public List<Topic> topics() {
+    return topics;
+  }
+
+  /** Active topics which have content, i.e. the ones players can actually look up. */
+  public List<Topic> visible() {
+    return visible;
+  }
+
+  public Optional<Topic> byId(int id) {
+    return Optional.ofNullable(byId.get(id));
+  }
+
+  /** Whether any topic, with or without content, already uses this name as its topic or alias. */
+  public boolean hasKey(String candidate) {
+    return allKeys.contains(fold(candidate));
+  }
+
+  /**
+   * Finds a topic by exact (case-insensitive) topic or alias name, falling back to a prefix match
+   * if it only narrows down to a single topic.
+   */
+  public Optional<Topic> lookup(String query) {
+    var folded = fold(query);
+    var direct = byKey.get(folded);
+    if (direct != null) return Optional.of(direct);
+
+    return Optional.ofNullable(visibleIndex.unique(folded));
+  }
+
+  /**
+   * Visible topics with a name within {@code maxDistance} typos of the query, closest first. The
+   * trigram index behind this is only built the first time a snapshot needs it.
+   */
+  public List<FuzzyMatch> fuzzy(String query, int maxDistance, Predicate<String> groupFilter, int limit) {
+    var index = fuzzyIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = fuzzyIndex;
+        if (index == null) fuzzyIndex = index = new FuzzyIndex(visible);
+      }
+    }
+    return index.search(fold(query), maxDistance, groupFilter, limit);
+  }
+
+  /**
+   * Visible topics whose content, preface or names contain the query's words, best match first.
+   * Like {@link #fuzzy}, the index is built on first use, reusing whatever it can from the snapshot
+   * this one was derived from.
+   */
+  public List<Topic> search(String query, Predicate<String> groupFilter, int limit) {
+    var index = searchIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = searchIndex;
+        if (index == null) {
+          searchIndex = index = new SearchIndex(visible, previousSearchIndex);
+          previousSearchIndex = null;
+        }
+      }
+    }
+    return index.search(query, groupFilter, limit);
+  }
+
+  /** Every group used by at least one active topic, in natural order. */
+  public List<String> groups() {
+    return groups;
+  }
+
+  /**
+   * Topic and alias names starting with the input, taken only from groups accepted by the filter.
+   * The filter is consulted once per group rather than once per topic.
+   */
+  public List<String> complete(String input, Predicate<String> groupFilter, int limit) {
+    var folded = fold(input);
+    var into = new ArrayList<String>(Math.min(limit, 32));
+    for (var group : groups) {
+      if (into.size() >= limit) break;
+      if (!groupFilter.test(group)) continue;
+      completionByGroup.get(group).complete(folded, into, limit);
+    }
+    return into;
+  }
+
+  @Override
+  public String toString() {
+    return topics.toString();
+  }
+}
@@ -0,0 +1,185 @@
+package com.vanillarite.faq.storage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.vanillarite.faq.FaqPlugin;
+import com.vanillarite.faq.storage.supabase.SupabaseConnection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+/**
+ * Moves the whole FAQ table, and optionally its history, between Supabase and a file in the data
+ * folder, e.g. to seed a staging server.
+ *
+ * <p>The file is NDJSON: one {@code {"table": ..., "row": ...}} object per line, with rows exactly
+ * as PostgREST returns them, FAQs (including deleted ones, which history may point at) before
+ * history. Both directions stream, so the file is never held in memory as a whole, and an import
+ * is sent as chunked upserts on {@code id}, followed by a single cache reload.
+ */
+public final class FaqTransfer {
+  private static final int PAGE_SIZE = 1000;
+  private static final int CHUNK_SIZE = 500;
+  private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_.-]+");
+  private static final String[] TABLES = {"faqs", "history"};
+
+  private final FaqPlugin plugin;
+  private final FaqCache cache;
+  private final Path folder;
+
+  public FaqTransfer(FaqPlugin plugin, FaqCache cache, Path folder) {
+    this.plugin = plugin;
+    this.cache = cache;
+    this.folder = folder;
+  }
+
+  public record Counts(Path file, int faqs, int history) {}
+
+  /** Where an export of this name lives, refusing anything that would leave the exports folder. */
+  public Path file(String name) {
+    if (!NAME.matcher(name).matches() || name.startsWith(".") || name.endsWith(".tmp")) {
+      throw new IllegalArgumentException("Export names may only contain letters, digits, '.', '_' and '-'");
+    }
+    return folder.resolve(name.endsWith(".ndjson") ? name : name + ".ndjson");
+  }
+
+  public Counts export(String name, boolean withHistory) throws IOException, InterruptedException {
+    var file = file(name);
+    Files.createDirectories(folder);
+    var temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+    var counts = new int[TABLES.length];
+    var done = false;
+    try {
+      try (var out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        for (int t = 0; t < TABLES.length; t++) {
+          if (t > 0 && !withHistory) break;
+          counts[t] = exportTable(plugin.supabase(), TABLES[t], out);
+        }
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      done = true;
+    } finally {
+      // Don't leave half an export lying around
+      if (!done) Files.deleteIfExists(temp);
+    }
+    return new Counts(file, counts[0], counts[1]);
+  }
+
+  /** Copies a table to the file page by page, ordered by id so each page can start after the last. */
+  private int exportTable(SupabaseConnection sb, String table, Writer out) throws IOException, InterruptedException {
+    var count = 0;
+    var after = Long.MIN_VALUE;
+    while (true) {
+      var request = sb.request("%s?order=id.asc&id=gt.%s&limit=%s".formatted(table, after, PAGE_SIZE)).GET().build();
+      HttpResponse<InputStream> response = sb.send(request, HttpResponse.BodyHandlers.ofInputStream());
+      if (response.statusCode() >= 300) {
+        throw new IllegalStateException(
+            "Failed to export %s? Got %s - %s"
+                .formatted(table, response.statusCode(), new String(response.body().readAllBytes())));
+      }
+
+      var page = 0;
+      try (var reader = new JsonReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+        reader.beginArray();
+        while (reader.hasNext()) {
+          var row = JsonParser.parseReader(reader).getAsJsonObject();
+          after = row.get("id").getAsLong();
+
+          var line = new JsonObject();
+          line.addProperty("table", table);
+          line.add("row", row);
+          out.write(line.toString());
+          out.write('\n');
+          page++;
+        }
+        reader.endArray();
+      }
+
+      count += page;
+      if (page < PAGE_SIZE) return count;
+    }
+  }
+
+  /**
+   * Imports a file. If it fails partway, the chunks sent until then stay imported; the exception
+   * says how many rows that was. Either way the cache is reloaded afterwards.
+   */
+  public Counts importFile(String name) throws IOException, InterruptedException {
+    var file = file(name);
+    var sb = plugin.supabase();
+    var committed = new int[TABLES.length];
+
+    String table = null;
+    var chunk = new JsonArray();
+    var lineNumber = 0;
+    try {
+      try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = in.readLine()) != null) {
+          lineNumber++;
+          if (line.isBlank()) continue;
+          var json = JsonParser.parseString(line).getAsJsonObject();
+          var lineTable = json.get("table").getAsString();
+          tableIndex(lineTable);
+
+          if (!lineTable.equals(table) || chunk.size() >= CHUNK_SIZE) {
+            if (table != null) committed[tableIndex(table)] += upsert(sb, table, chunk);
+            table = lineTable;
+            chunk = new JsonArray();
+          }
+          chunk.add(json.get("row"));
+        }
+      }
+      if (table != null) committed[tableIndex(table)] += upsert(sb, table, chunk);
+    } catch (IOException | RuntimeException e) {
+      throw new IOException("%s (stopped at line %s, %s topics and %s history entries were already imported)"
+          .formatted(e.getMessage(), lineNumber, committed[0], committed[1]), e);
+    } finally {
+      // Imported rows may replace ones we already had cached in any shape
+      cache.clearHistoryPages();
+      try {
+        cache.invalidateAndGet();
+      } catch (RuntimeException e) {
+        plugin.getSLF4JLogger().error("Couldn't reload the FAQ cache after importing", e);
+      }
+    }
+    return new Counts(file, committed[0], committed[1]);
+  }
+
+  private static int tableIndex(String table) {
+    for (int i = 0; i < TABLES.length; i++) {
+      if (TABLES[i].equals(table)) return i;
+    }
+    throw new IllegalArgumentException("Unknown table %s in import".formatted(table));
+  }
+
+  private int upsert(SupabaseConnection sb, String table, JsonArray rows) throws IOException, InterruptedException {
+    if (rows.isEmpty()) return 0;
+
+    var request = sb.request(table + "?on_conflict=id")
+        .header("prefer", "resolution=merge-duplicates,return=minimal")
+        .POST(HttpRequest.BodyPublishers.ofString(rows.toString()))
+        .build();
+    HttpResponse<String> response = sb.send(request, HttpResponse.BodyHandlers.ofString());
+
+    if (response.statusCode() >= 300) {
+      throw new IllegalStateException(
+          "Failed to import %s rows into %s? Got %s - %s"
+              .formatted(rows.size(), table, response.statusCode(), response.body()));
+    }
+    plugin.debug("Imported %s rows into %s".formatted(rows.size(), table));
+    return rows.size();
+  }
+}
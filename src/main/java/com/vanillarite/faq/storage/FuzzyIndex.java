@@ -0,0 +1,147 @@
+package com.vanillarite.faq.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Trigram index over case-folded topic and alias names, for finding names within a few typos of a
+ * query. Only names sharing enough trigrams with the query can possibly be that close, so the
+ * (comparatively expensive) edit distance is computed for a handful of candidates rather than
+ * every name.
+ */
+final class FuzzyIndex {
+  private final String[] keys;
+  private final String[] names;
+  private final Topic[] topics;
+  private final Map<String, int[]> postings;
+
+  FuzzyIndex(Collection<Topic> source) {
+    var keys = new ArrayList<String>();
+    var names = new ArrayList<String>();
+    var topics = new ArrayList<Topic>();
+    for (var t : source) {
+      keys.add(FaqSnapshot.fold(t.topic()));
+      names.add(t.topic());
+      topics.add(t);
+      for (var a : t.alias()) {
+        keys.add(FaqSnapshot.fold(a));
+        names.add(a);
+        topics.add(t);
+      }
+    }
+    this.keys = keys.toArray(String[]::new);
+    this.names = names.toArray(String[]::new);
+    this.topics = topics.toArray(Topic[]::new);
+
+    var building = new HashMap<String, List<Integer>>();
+    for (int i = 0; i < this.keys.length; i++) {
+      for (var gram : grams(this.keys[i])) building.computeIfAbsent(gram, k -> new ArrayList<>()).add(i);
+    }
+    var postings = new HashMap<String, int[]>(building.size());
+    building.forEach((gram, ids) -> postings.put(gram, ids.stream().mapToInt(Integer::intValue).toArray()));
+    this.postings = postings;
+  }
+
+  /** Distinct trigrams of the key, padded so the first and last characters count as much as the rest. */
+  private static Set<String> grams(String key) {
+    var padded = "\u0002" + key + "\u0003";
+    var grams = new HashSet<String>();
+    if (padded.length() < 3) return grams;
+    for (int i = 0; i + 3 <= padded.length(); i++) grams.add(padded.substring(i, i + 3));
+    return grams;
+  }
+
+  /**
+   * Edit distance (insertions, deletions, substitutions and swapping two neighbouring characters),
+   * or anything above {@code max} once it's clear the result will be larger than that.
+   */
+  static int distance(String a, String b, int max) {
+    if (Math.abs(a.length() - b.length()) > max) return max + 1;
+    var previous = new int[b.length() + 1];
+    var current = new int[b.length() + 1];
+    var next = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) current[j] = j;
+
+    for (int i = 1; i <= a.length(); i++) {
+      var swap = previous;
+      previous = current;
+      current = next;
+      next = swap;
+      current[0] = i;
+      var rowMin = current[0];
+      for (int j = 1; j <= b.length(); j++) {
+        var cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        var d = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+          d = Math.min(d, next[j - 2] + 1);
+        }
+        current[j] = d;
+        rowMin = Math.min(rowMin, d);
+      }
+      if (rowMin > max) return max + 1;
+    }
+    return current[b.length()];
+  }
+
+  /**
+   * Topics with a name at most {@code maxDistance} edits away from the query, closest first, one
+   * entry per topic. Topics in groups rejected by the filter are skipped.
+   */
+  List<FuzzyMatch> search(String folded, int maxDistance, Predicate<String> groupFilter, int limit) {
+    var grams = grams(folded);
+    // A single edit can break up to four of the query's trigrams, when it swaps two neighbouring
+    // characters ("spawn" -> "spwan" shares only the leading one)
+    var minShared = grams.size() - 4 * maxDistance;
+
+    int[] candidates;
+    int count = 0;
+    if (minShared <= 0) {
+      // Too short for the trigrams to rule anything out
+      candidates = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) candidates[count++] = i;
+    } else {
+      var shared = new int[keys.length];
+      candidates = new int[16];
+      for (var gram : grams) {
+        var ids = postings.get(gram);
+        if (ids == null) continue;
+        for (var id : ids) {
+          if (++shared[id] != minShared) continue;
+          if (count == candidates.length) candidates = Arrays.copyOf(candidates, count * 2);
+          candidates[count++] = id;
+        }
+      }
+    }
+
+    var best = new HashMap<Integer, FuzzyMatch>();
+    var rejectedGroups = new HashSet<String>();
+    for (int c = 0; c < count; c++) {
+      var i = candidates[c];
+      var topic = topics[i];
+      if (rejectedGroups.contains(topic.group())) continue;
+      if (!groupFilter.test(topic.group())) {
+        rejectedGroups.add(topic.group());
+        continue;
+      }
+      var d = distance(folded, keys[i], maxDistance);
+      if (d > maxDistance) continue;
+      var existing = best.get(topic.id());
+      if (existing == null || d < existing.distance()) best.put(topic.id(), new FuzzyMatch(topic, names[i], d));
+    }
+
+    return best.values().stream()
+        .sorted(Comparator.comparingInt(FuzzyMatch::distance)
+            .thenComparingInt(match -> match.name().length())
+            .thenComparing(FuzzyMatch::name))
+        .limit(limit)
+        .toList();
+  }
+}
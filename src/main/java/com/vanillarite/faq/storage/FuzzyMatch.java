@@ -0,0 +1,5 @@
+package com.vanillarite.faq.storage;
+
+/** A topic found by a fuzzy lookup, along with which of its names matched and how closely. */
+public record FuzzyMatch(Topic topic, String name, int distance) {
+}
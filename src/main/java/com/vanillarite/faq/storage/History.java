@@ -1,6 +1,7 @@
 package com.vanillarite.faq.storage;
 
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import com.vanillarite.faq.storage.supabase.Field;
 import com.vanillarite.faq.storage.supabase.Method;
 import com.vanillarite.faq.util.DurationUtil;
@@ -9,6 +10,7 @@ import net.kyori.adventure.text.format.TextColor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.Objects;
@@ -33,7 +35,7 @@ public record History(
     Method method,
     Field field,
     @Nullable String before,
-    String after,
+    @Nullable String after,
     Instant timestamp
 ) {
   private static final char[] smallNumbers = "₀₁₂₃₄₅₆₇₈₉".toCharArray();
@@ -51,6 +53,48 @@ public record History(
     );
   }
 
+  /** Reads a history row straight off the token stream, see {@link Topic#read(JsonReader)}. */
+  public static History read(JsonReader in) throws IOException {
+    int id = 0;
+    int faq = 0;
+    UUID author = null;
+    Method method = null;
+    Field field = null;
+    String before = null;
+    String after = null;
+    Instant timestamp = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "id" -> id = in.nextInt();
+        case "faq" -> faq = in.nextInt();
+        case "author" -> author = Topic.AUTHORS.intern(UUID.fromString(in.nextString()));
+        case "method" -> method = Method.valueOf(in.nextString());
+        case "field" -> field = Field.valueOf(in.nextString());
+        case "before" -> before = Topic.nextNullableString(in);
+        case "after" -> after = in.nextString();
+        case "timestamp" -> timestamp = OffsetDateTime.parse(in.nextString()).toInstant();
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new History(id, faq, author, method, field, before, after, timestamp);
+  }
+
+  /**
+   * Whether {@link #before} and {@link #after} were fetched. History listings leave them out for
+   * content and preface changes, which are only loaded when inspected.
+   */
+  public boolean hasBodies() {
+    return after != null;
+  }
+
+  public History withBodies(@Nullable String before, String after) {
+    return new History(id, faq, author, method, field, before, after, timestamp);
+  }
+
   public @NotNull String beforeOrBlank() {
     return Objects.requireNonNullElse(before, "");
   }
@@ -88,7 +132,8 @@ public record History(
         text(DurationUtil.formatInstantToNow(timestamp), TextColor.fromHexString("#BDF9FC")),
         text(" ago", GRAY)
     );
-    if ((field == Field.PREFACE || field == Field.CONTENT) && method == Method.PATCH && !beforeOrBlank().isBlank() && !after.isBlank()) {
+    var isBodyEdit = (field == Field.PREFACE || field == Field.CONTENT) && method == Method.PATCH;
+    if (isBodyEdit && (!hasBodies() || (!beforeOrBlank().isBlank() && !after.isBlank()))) {
       component = component.append(
           text(" [inspect]", RED)
               .hoverEvent(showText(text("Click to inspect differences")))
@@ -111,7 +156,14 @@ public record History(
   }
 
   private Component differenceComponent() {
-    if (after.length() == 0) {
+    if (!hasBodies()) {
+      // Same wording as below, as far as the method alone can tell
+      return switch (method) {
+        case POST -> text("new", GRAY);
+        case PATCH -> text("changed", GRAY, ITALIC);
+        case DELETE -> text("erased", WHITE, BOLD, ITALIC);
+      };
+    } else if (after.length() == 0) {
       return Component.textOfChildren(
           fieldAwareContent(this::beforeOrBlank),
           text(" erased", WHITE, BOLD, ITALIC)
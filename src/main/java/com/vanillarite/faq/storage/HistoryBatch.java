@@ -0,0 +1,72 @@
+package com.vanillarite.faq.storage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.vanillarite.faq.storage.supabase.Field;
+import com.vanillarite.faq.storage.supabase.Method;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * History rows belonging to one logical modification, sent to Supabase as a single array insert.
+ */
+public final class HistoryBatch {
+  private final UUID author;
+  private final JsonArray rows = new JsonArray();
+  private final List<String> summaries = new ArrayList<>();
+  private final Set<Integer> faqs = new LinkedHashSet<>();
+
+  public HistoryBatch(UUID author) {
+    this.author = author;
+  }
+
+  public HistoryBatch add(int faq, Method method, Field field, @Nullable String before, String after) {
+    return add(author, faq, method, field, before, after);
+  }
+
+  /** Adds a row made by someone other than the batch's author, for batches collecting several people's edits. */
+  public HistoryBatch add(UUID author, int faq, Method method, Field field, @Nullable String before, String after) {
+    var body = new JsonObject();
+    body.addProperty("faq", faq);
+    body.addProperty("author", author.toString());
+    body.addProperty("method", method.name());
+    body.addProperty("field", field.name());
+    body.addProperty("before", before);
+    body.addProperty("after", after);
+    rows.add(body);
+    faqs.add(faq);
+
+    summaries.add(
+        "#%s %s %s by %s; %s chars -> %s chars"
+            .formatted(
+                faq,
+                method,
+                field,
+                author,
+                (before == null ? "empty" : before.length()),
+                after.length()));
+    return this;
+  }
+
+  public boolean isEmpty() {
+    return rows.isEmpty();
+  }
+
+  public JsonArray toJson() {
+    return rows;
+  }
+
+  /** Every FAQ this batch has rows for. */
+  public Set<Integer> faqs() {
+    return faqs;
+  }
+
+  public List<String> summaries() {
+    return summaries;
+  }
+}
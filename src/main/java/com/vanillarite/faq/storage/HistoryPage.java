@@ -0,0 +1,17 @@
+package com.vanillarite.faq.storage;
+
+import java.util.List;
+
+/**
+ * One page of a FAQ's history, newest first. Pages are numbered from 1, and {@code pageCount} is 0
+ * when Supabase didn't report how many rows there are.
+ */
+public record HistoryPage(int faq, int page, int pageCount, List<History> entries) {
+  public boolean hasPrevious() {
+    return page > 1;
+  }
+
+  public boolean hasNext() {
+    return page < pageCount;
+  }
+}
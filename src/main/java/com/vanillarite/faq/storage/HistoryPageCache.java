@@ -0,0 +1,61 @@
+package com.vanillarite.faq.storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The most recently viewed history pages. Existing history rows never change, but a new row shifts
+ * every page of its FAQ, so writing history, or seeing a newer version of the topic, drops all
+ * cached pages for that FAQ. Rows written elsewhere can't always be seen coming (another server
+ * without Realtime, say), so pages also expire after a short while.
+ */
+final class HistoryPageCache {
+  private final Map<Key, Entry> pages;
+  private final long ttlNanos;
+  private long version = 0;
+
+  HistoryPageCache(int capacity, long ttl, TimeUnit unit) {
+    this.ttlNanos = unit.toNanos(ttl);
+    this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  synchronized HistoryPage get(int faq, int page) {
+    var key = new Key(faq, page);
+    var entry = pages.get(key);
+    if (entry == null) return null;
+    if (System.nanoTime() - entry.fetchedAt() > ttlNanos) {
+      pages.remove(key);
+      return null;
+    }
+    return entry.page();
+  }
+
+  /** Bumped on every invalidation, so a page fetched while history was being written isn't kept. */
+  synchronized long version() {
+    return version;
+  }
+
+  synchronized void put(HistoryPage page, long fetchedAt) {
+    if (fetchedAt == version) pages.put(new Key(page.faq(), page.page()), new Entry(page, System.nanoTime()));
+  }
+
+  synchronized void invalidate(int faq) {
+    version++;
+    pages.keySet().removeIf(k -> k.faq() == faq);
+  }
+
+  synchronized void clear() {
+    version++;
+    pages.clear();
+  }
+
+  private record Key(int faq, int page) {}
+
+  private record Entry(HistoryPage page, long fetchedAt) {}
+}
@@ -1,13 +1,18 @@
 package com.vanillarite.faq.storage;
 
 import com.google.gson.JsonElement;
-import com.vanillarite.faq.AdventureEditorAPI;
+import com.vanillarite.faq.EditorSessions;
 import com.vanillarite.faq.FaqPlugin;
 import com.vanillarite.faq.config.PrefixKind;
 import com.vanillarite.faq.config.message.ButtonKind;
 import com.vanillarite.faq.storage.supabase.Field;
 import com.vanillarite.faq.storage.supabase.Method;
+import com.vanillarite.faq.storage.supabase.RealtimeFeed;
 import com.vanillarite.faq.storage.supabase.SupabaseConnection;
+import com.vanillarite.faq.text.list.ListingCache;
+import com.vanillarite.faq.text.render.DiffCache;
+import com.vanillarite.faq.text.render.RenderCache;
+import com.vanillarite.faq.util.GroupResolver;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
 import org.bukkit.Bukkit;
@@ -16,12 +21,14 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -41,10 +48,62 @@ public class Manager {
   public static final UUID NULL_UUID = new UUID(0, 0);
   private final FaqPlugin plugin;
   private final FaqCache faqCache;
+  private final SnapshotFile snapshotFile;
+  private final RenderCache renderCache;
+  private final ListingCache listingCache;
+  private final DiffCache diffCache;
+  private final EditorSessions editorSessions;
+  private final GroupResolver groupResolver;
+  private final WriteQueue writeQueue;
+  private final FaqTransfer transfer;
+  private @Nullable RealtimeFeed realtimeFeed;
 
   public Manager(FaqPlugin plugin) {
     this.plugin = plugin;
     this.faqCache = new FaqCache(this::getAllFaqTopics, 60, TimeUnit.MINUTES, plugin);
+    this.snapshotFile = new SnapshotFile(plugin.getDataFolder().toPath().resolve("faqs.snapshot"));
+    this.renderCache = new RenderCache(plugin, faqCache);
+    this.listingCache = new ListingCache(plugin, faqCache);
+    this.diffCache = new DiffCache(plugin, faqCache);
+    this.editorSessions = new EditorSessions(plugin);
+    this.groupResolver = new GroupResolver(plugin, faqCache);
+    this.transfer = new FaqTransfer(plugin, faqCache, plugin.getDataFolder().toPath().resolve("exports"));
+    this.writeQueue = new WriteQueue(plugin, faqCache, plugin.getDataFolder().toPath().resolve("queued-edits.ndjson"));
+
+    try {
+      snapshotFile.read().ifPresent(topics -> {
+        faqCache.seed(new FaqSnapshot(topics));
+        plugin.getLogger().info("Restored %s FAQ topics from the local snapshot".formatted(topics.size()));
+      });
+    } catch (IOException e) {
+      plugin.getSLF4JLogger().warn("Couldn't read the local FAQ snapshot, waiting for Supabase instead", e);
+    }
+    // Kick off the first real load now rather than on the first /faq
+    plugin.storageExecutor().execute(faqCache::get);
+    // Also done when write-behind has since been turned off, so nothing journaled is lost
+    writeQueue.recover();
+
+    startRealtime();
+  }
+
+  private void startRealtime() {
+    if (plugin.config().supabase().realtime().enabled()) {
+      this.realtimeFeed = new RealtimeFeed(plugin, faqCache);
+      this.realtimeFeed.start();
+    } else {
+      this.realtimeFeed = null;
+    }
+  }
+
+  /** Reconnects the Realtime feed (or stops it) after the Supabase settings changed. */
+  public synchronized void restartRealtime() {
+    if (realtimeFeed != null) realtimeFeed.close();
+    startRealtime();
+  }
+
+  public synchronized void close() {
+    writeQueue.close();
+    if (realtimeFeed != null) realtimeFeed.close();
   }
 
   public static Component componentAuthor(UUID author) {
@@ -61,36 +120,86 @@ public class Manager {
     return faqCache;
   }
 
+  public RenderCache renderCache() {
+    return renderCache;
+  }
+
+  public ListingCache listingCache() {
+    return listingCache;
+  }
+
+  public DiffCache diffCache() {
+    return diffCache;
+  }
+
+  public EditorSessions editorSessions() {
+    return editorSessions;
+  }
+
+  public GroupResolver groupResolver() {
+    return groupResolver;
+  }
+
   public SupabaseConnection supabase() {
-    return new SupabaseConnection(
-        plugin.config().supabase().url(),
-        plugin.config().supabase().anonKey(),
-        plugin.config().supabase().authKey()
-    );
+    return plugin.supabase();
   }
 
   public boolean assertNoExisting(String candidate) {
     if (candidate.contains("~.")) return true;
-    return faqCache.invalidateAndGet().stream().anyMatch(i -> i.topic().equalsIgnoreCase(candidate) || i.alias().stream().anyMatch(a -> a.equalsIgnoreCase(candidate)));
+    return faqCache.get().hasKey(candidate);
   }
 
-  public Optional<Topic> updateFaqArrayField(int id, Field key, Method method, String entry, CommandSender author) {
+  private boolean writeBehind() {
+    return plugin.config().writeBehind().enabled();
+  }
+
+  public CompletableFuture<WriteResult> updateFaqArrayField(int id, Field key, Method method, String entry, CommandSender author) {
+    if (writeBehind()) return writeQueue.submit(new WriteQueue.Edit(id, key, method, entry, getAuthor(author)));
     return faqCache.supabasePatchArray(supabase(), id, key, entry, method, getAuthor(author));
   }
 
-  public Optional<Topic> updateFaqComplex(int id, Field key, String value, JsonElement element, CommandSender author) {
+  public CompletableFuture<WriteResult> updateFaqComplex(int id, Field key, String value, JsonElement element, CommandSender author) {
+    if (writeBehind()) return writeQueue.submit(new WriteQueue.Edit(id, key, Method.PATCH, value, getAuthor(author)));
     return faqCache.supabasePatchComplex(supabase(), id, key, value, element, getAuthor(author));
   }
 
-  public Optional<Topic> updateFaqTopic(int id, Field key, String value, CommandSender author) {
-    return faqCache.supabasePatch(supabase(), id, key, value, getAuthor(author));
+  public CompletableFuture<WriteResult> updateFaqTopic(int id, Field key, String value, CommandSender author) {
+    if (writeBehind()) return writeQueue.submit(new WriteQueue.Edit(id, key, Method.PATCH, value, getAuthor(author)));
+    return updateFaqTopic(id, null, key, value, author);
+  }
+
+  /** Like {@link #updateFaqTopic(int, Field, String, CommandSender)}, but only if the topic is still as {@code seen}. */
+  public CompletableFuture<WriteResult> updateFaqTopic(int id, @Nullable Topic seen, Field key, String value, CommandSender author) {
+    return faqCache.supabasePatch(supabase(), id, seen, key, value, getAuthor(author));
   }
 
-  public Optional<Topic> createFaqTopic(String topic, CommandSender author) {
+  public CompletableFuture<FaqTransfer.Counts> exportFaqs(String name, boolean withHistory) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return transfer.export(name, withHistory);
+      } catch (IOException | InterruptedException e) {
+        throw new CompletionException(e);
+      }
+    }, plugin.storageExecutor());
+  }
+
+  public CompletableFuture<FaqTransfer.Counts> importFaqs(String name) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return transfer.importFile(name);
+      } catch (IOException | InterruptedException e) {
+        throw new CompletionException(e);
+      } finally {
+        diffCache.clear();
+      }
+    }, plugin.storageExecutor());
+  }
+
+  public CompletableFuture<Optional<Topic>> createFaqTopic(String topic, CommandSender author) {
     return faqCache.supabasePost(supabase(), topic, getAuthor(author));
   }
 
-  public boolean deleteFaqTopic(int id, CommandSender author) {
+  public CompletableFuture<Boolean> deleteFaqTopic(int id, CommandSender author) {
     return faqCache.supabaseDelete(supabase(), id, getAuthor(author));
   }
 
@@ -100,6 +209,11 @@ public class Manager {
       plugin.debug("FAQ List cache has been updated, %s entries in memory".formatted(updated.get().size()));
       var list = updated.get();
       list.sort(Comparator.comparingInt(Topic::id));
+      try {
+        snapshotFile.write(list);
+      } catch (IOException e) {
+        plugin.getSLF4JLogger().warn("Couldn't save the local FAQ snapshot", e);
+      }
       return list;
     } else {
       plugin.getLogger().severe("FAQ List cache was invalidated but couldn't update. A stack trace is above");
@@ -107,22 +221,18 @@ public class Manager {
     }
   }
 
-  public Function<Component, Component> makeEditorLink(boolean noHover, Topic existing, Field field, String placeholder) throws ExecutionException, InterruptedException {
-    var editorLink = plugin.config().mmEditor().url();
+  public CompletableFuture<Function<Component, Component>> makeEditorLink(boolean noHover, Topic existing, Field field, String placeholder) {
+    var editorLink = plugin.editor().root();
 
-    var token = new AdventureEditorAPI(editorLink).startSession(
-        requireNonBlankElse(existing.findField(field), placeholder),
-        "/faqeditor submit %s %s {token}".formatted(String.valueOf(existing.id()), field.name().toLowerCase()),
-        "VanillariteFAQ"
-    ).get();
+    return editorSessions.start(existing, field, requireNonBlankElse(existing.findField(field), placeholder)).thenApply(token -> {
+      var tokenLink = "%s?mode=chat_open&token=%s".formatted(editorLink, token);
 
-    var tokenLink = "%s?mode=chat_open&token=%s".formatted(editorLink, token);
-
-    if (noHover) {
-      return (c) -> c.append(text("Editor link for %s: <%s>".formatted(field, tokenLink)));
-    } else {
-      return (c) -> c.clickEvent(openUrl(tokenLink));
-    }
+      if (noHover) {
+        return (c) -> c.append(text("Editor link for %s: <%s>".formatted(field, tokenLink)));
+      } else {
+        return (c) -> c.clickEvent(openUrl(tokenLink));
+      }
+    });
   }
 
   private @NotNull String requireNonBlankElse(@Nullable String s1, String s2) {
@@ -136,8 +246,14 @@ public class Manager {
     return transform.apply(m.deserialize(section.get(kind)));
   }
 
-  public List<Component> makeButtons(Topic faq, Predicate<String> permissionChecker) throws ExecutionException, InterruptedException {
+  public List<Component> makeButtons(Topic faq, Predicate<String> permissionChecker) {
     var section = plugin.config().messages().manage();
+    // Whoever opens this menu is likely to edit the content or preface next
+    for (var field : List.of(Field.CONTENT, Field.PREFACE)) {
+      if (permissionChecker.test("vfaq.manage.edit." + field.name().toLowerCase())) {
+        editorSessions.prefetch(faq, field, requireNonBlankElse(faq.findField(field), section.initialPlaceholder()));
+      }
+    }
     var rows = new ArrayList<Component>();
     var buttons = new ArrayList<Component>();
     Function<String, Function<Component, Component>> suggest = (name) -> (c) -> c.clickEvent(suggestCommand(name.formatted(faq.id())));
@@ -177,22 +293,28 @@ public class Manager {
   }
 
   public void applyEditor(CommandSender sender, int id, String token, Field field) {
-    var editorLink = plugin.config().mmEditor().url();
     var prefix = plugin.prefixFor(sender, PrefixKind.EDITOR);
 
     prefix.response(text("Processing change...", GRAY, ITALIC));
 
-    try {
-      var output = new AdventureEditorAPI(editorLink).retrieveSession(token).get();
-      var modified = updateFaqTopic(id, field, output, sender);
-      modified.ifPresentOrElse(
-          faqTopic -> prefix.logged(text("Success! %s of %s (#%s) was modified".formatted(field.name(), faqTopic.topic(), id))),
-          () ->       prefix.logged(text("Saving new %s failed?".formatted(field.name()), RED))
-      );
-    } catch (InterruptedException | ExecutionException e) {
-      prefix.logged(text("Reading new %s failed?".formatted(field.name()), RED));
-      e.printStackTrace();
-    }
+    // The edit is based on whatever the field held when the session was started
+    var seen = editorSessions.seen(token);
+    plugin.editor().retrieveSession(token)
+        .thenCompose(output -> updateFaqTopic(id, seen, field, output, sender))
+        .whenCompleteAsync((result, e) -> {
+          if (e != null) {
+            prefix.logged(text("Reading new %s failed?".formatted(field.name()), RED));
+            e.printStackTrace();
+            return;
+          }
+          if (result instanceof WriteResult.Success success) {
+            prefix.logged(text("Success! %s of %s (#%s) was modified".formatted(field.name(), success.topic().topic(), id)));
+          } else if (result instanceof WriteResult.Conflict conflict) {
+            prefix.logged(text("Someone else changed the %s of %s (#%s) while you were editing it. Open the editor again to start from their version".formatted(field.name(), conflict.current().topic(), id), RED));
+          } else {
+            prefix.logged(text("Saving new %s failed?".formatted(field.name()), RED));
+          }
+        }, plugin.mainThread());
   }
 
   public Component makePreview(Field type, @NotNull Topic topic) {
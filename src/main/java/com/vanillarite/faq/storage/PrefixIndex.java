@@ -0,0 +1,66 @@
+package com.vanillarite.faq.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorted array of case-folded topic and alias names, so every name starting with a given prefix
+ * can be found with a binary search instead of a scan.
+ */
+final class PrefixIndex {
+  private final String[] keys;
+  private final String[] names;
+  private final Topic[] topics;
+
+  PrefixIndex(Collection<Topic> source) {
+    var entries = new ArrayList<Entry>();
+    for (var t : source) {
+      entries.add(new Entry(FaqSnapshot.fold(t.topic()), t.topic(), t));
+      for (var a : t.alias()) entries.add(new Entry(FaqSnapshot.fold(a), a, t));
+    }
+    entries.sort(Comparator.comparing(Entry::key));
+
+    this.keys = new String[entries.size()];
+    this.names = new String[entries.size()];
+    this.topics = new Topic[entries.size()];
+    for (int i = 0; i < entries.size(); i++) {
+      var e = entries.get(i);
+      keys[i] = e.key();
+      names[i] = e.name();
+      topics[i] = e.topic();
+    }
+  }
+
+  private int lowerBound(String folded) {
+    int i = Arrays.binarySearch(keys, folded);
+    if (i >= 0) {
+      // Duplicate keys are possible, walk back to the first one
+      while (i > 0 && keys[i - 1].equals(folded)) i--;
+      return i;
+    }
+    return -i - 1;
+  }
+
+  /** The single topic whose names start with the prefix, or null if there are none or several. */
+  Topic unique(String folded) {
+    Topic found = null;
+    for (int i = lowerBound(folded); i < keys.length && keys[i].startsWith(folded); i++) {
+      if (found == null) found = topics[i];
+      else if (found != topics[i]) return null;
+    }
+    return found;
+  }
+
+  /** Adds the display names starting with the prefix to {@code into}, stopping once it holds {@code limit}. */
+  void complete(String folded, List<String> into, int limit) {
+    for (int i = lowerBound(folded); i < keys.length && keys[i].startsWith(folded); i++) {
+      if (into.size() >= limit) return;
+      into.add(names[i]);
+    }
+  }
+
+  private record Entry(String key, String name, Topic topic) {}
+}
@@ -0,0 +1,170 @@
+package com.vanillarite.faq.storage;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import static com.vanillarite.faq.FaqPlugin.m;
+
+/**
+ * Inverted index from words to the topics using them, ranked with BM25. Words come from the content
+ * and preface with MiniMessage tags stripped, plus the topic and alias names, which count a few
+ * times over so a topic named after the query ranks above one merely mentioning it.
+ *
+ * <p>Tokenizing is the expensive part, so an index can be built from the previous one, reusing
+ * the words of every topic whose name, aliases, content and preface didn't change.
+ */
+final class SearchIndex {
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+  private static final int NAME_WEIGHT = 3;
+
+  private final Doc[] docs;
+  private final Map<String, Postings> postings;
+  private final double averageLength;
+
+  SearchIndex(Collection<Topic> source, @Nullable SearchIndex previous) {
+    var reusable = new HashMap<Integer, Doc>();
+    if (previous != null) for (var doc : previous.docs) reusable.put(doc.topic().id(), doc);
+
+    this.docs = new Doc[source.size()];
+    var building = new HashMap<String, List<int[]>>();
+    long totalLength = 0;
+    int ordinal = 0;
+    for (var t : source) {
+      var doc = reusable.get(t.id());
+      if (doc == null || !doc.hasSameText(t)) {
+        doc = Doc.of(t);
+      } else {
+        // Same words, but results should hand out the current record (group, position, ...)
+        doc = new Doc(t, doc.terms(), doc.length());
+      }
+      docs[ordinal] = doc;
+      totalLength += doc.length();
+
+      for (var term : doc.terms().entrySet()) {
+        building.computeIfAbsent(term.getKey(), k -> new ArrayList<>()).add(new int[]{ordinal, term.getValue()});
+      }
+      ordinal++;
+    }
+    this.averageLength = docs.length == 0 ? 0 : (double) totalLength / docs.length;
+
+    var postings = new HashMap<String, Postings>(building.size());
+    building.forEach((term, entries) -> {
+      var ordinals = new int[entries.size()];
+      var frequencies = new int[entries.size()];
+      for (int i = 0; i < ordinals.length; i++) {
+        ordinals[i] = entries.get(i)[0];
+        frequencies[i] = entries.get(i)[1];
+      }
+      postings.put(term, new Postings(ordinals, frequencies));
+    });
+    this.postings = postings;
+  }
+
+  static List<String> tokenize(String text) {
+    var tokens = new ArrayList<String>();
+    var folded = text.toLowerCase(Locale.ROOT);
+    int start = -1;
+    for (int i = 0; i <= folded.length(); i++) {
+      var isWord = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+      if (isWord && start < 0) {
+        start = i;
+      } else if (!isWord && start >= 0) {
+        // Single letters are almost always noise from punctuation like "it's"
+        if (i - start > 1) tokens.add(folded.substring(start, i));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  /** The best matching topics for the query, best first, skipping groups rejected by the filter. */
+  List<Topic> search(String query, Predicate<String> groupFilter, int limit) {
+    var terms = new LinkedHashSet<>(tokenize(query));
+    if (terms.isEmpty() || docs.length == 0) return List.of();
+
+    var scores = new double[docs.length];
+    var matched = new boolean[docs.length];
+    var touched = new ArrayList<Integer>();
+    for (var term : terms) {
+      var p = postings.get(term);
+      if (p == null) continue;
+      var idf = Math.log(1 + (docs.length - p.ordinals().length + 0.5) / (p.ordinals().length + 0.5));
+      for (int i = 0; i < p.ordinals().length; i++) {
+        var doc = p.ordinals()[i];
+        var tf = p.frequencies()[i];
+        var norm = K1 * (1 - B + B * docs[doc].length() / averageLength);
+        scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+        if (!matched[doc]) {
+          matched[doc] = true;
+          touched.add(doc);
+        }
+      }
+    }
+
+    var rejectedGroups = new HashSet<String>();
+    var acceptedGroups = new HashSet<String>();
+    var results = new ArrayList<Integer>();
+    for (var doc : touched) {
+      var group = docs[doc].topic().group();
+      if (rejectedGroups.contains(group)) continue;
+      if (!acceptedGroups.contains(group)) {
+        if (!groupFilter.test(group)) {
+          rejectedGroups.add(group);
+          continue;
+        }
+        acceptedGroups.add(group);
+      }
+      results.add(doc);
+    }
+
+    return results.stream()
+        .sorted((a, b) -> Double.compare(scores[b], scores[a]))
+        .limit(limit)
+        .map(doc -> docs[doc].topic())
+        .toList();
+  }
+
+  private record Postings(int[] ordinals, int[] frequencies) {}
+
+  private record Doc(Topic topic, Map<String, Integer> terms, int length) {
+    static Doc of(Topic t) {
+      var terms = new HashMap<String, Integer>();
+      var length = 0;
+      for (var text : new String[]{t.content(), t.preface()}) {
+        if (text == null) continue;
+        for (var token : tokenize(m.stripTags(text))) {
+          terms.merge(token, 1, Integer::sum);
+          length++;
+        }
+      }
+      var names = new ArrayList<String>();
+      names.add(t.topic());
+      names.addAll(t.alias());
+      for (var name : names) {
+        for (var token : tokenize(name)) {
+          terms.merge(token, NAME_WEIGHT, Integer::sum);
+          length += NAME_WEIGHT;
+        }
+      }
+      return new Doc(t, Map.copyOf(terms), length);
+    }
+
+    boolean hasSameText(Topic t) {
+      return topic.topic().equals(t.topic())
+          && topic.alias().equals(t.alias())
+          && topic.content().equals(t.content())
+          && Objects.equals(topic.preface(), t.preface());
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.vanillarite.faq.storage;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Local copy of the last successfully loaded FAQ table, so lookups can be answered straight after
+ * startup (or while Supabase is unreachable) without waiting on the network.
+ *
+ * <p>The file is a small versioned binary format: a magic number and format version, followed by
+ * each topic's fields in declaration order. Strings are length-prefixed UTF-8, since topic bodies
+ * can be longer than {@link DataOutputStream#writeUTF} allows.
+ */
+public final class SnapshotFile {
+  private static final int MAGIC = 0x76464151; // "vFAQ"
+  private static final int VERSION = 1;
+
+  private final Path path;
+
+  public SnapshotFile(Path path) {
+    this.path = path;
+  }
+
+  public Optional<List<Topic>> read() throws IOException {
+    if (!Files.exists(path)) return Optional.empty();
+
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC) throw new IOException("%s is not a FAQ snapshot".formatted(path));
+      var version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("%s has unsupported snapshot version %s".formatted(path, version));
+      }
+
+      var count = in.readInt();
+      var topics = new ArrayList<Topic>(count);
+      for (int i = 0; i < count; i++) {
+        var id = in.readInt();
+        var topic = readString(in);
+        var content = readString(in);
+        var preface = readNullableString(in);
+        var aliasCount = in.readInt();
+        var alias = new ArrayList<String>(aliasCount);
+        for (int j = 0; j < aliasCount; j++) alias.add(readString(in));
+        var group = readString(in);
+        var pos = new Topic.Pos(in.readInt(), in.readInt());
+        var author = new UUID(in.readLong(), in.readLong());
+        var active = in.readBoolean();
+        var createdAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        var updatedAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        topics.add(new Topic(
+            id, topic, content, preface, List.copyOf(alias), group, pos, author, active, createdAt, updatedAt
+        ));
+      }
+      return Optional.of(topics);
+    }
+  }
+
+  public void write(List<Topic> topics) throws IOException {
+    Files.createDirectories(path.getParent());
+    var temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+    try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(topics.size());
+      for (var t : topics) {
+        out.writeInt(t.id());
+        writeString(out, t.topic());
+        writeString(out, t.content());
+        writeNullableString(out, t.preface());
+        out.writeInt(t.alias().size());
+        for (var a : t.alias()) writeString(out, a);
+        writeString(out, t.group());
+        out.writeInt(t.pos().line());
+        out.writeInt(t.pos().col());
+        out.writeLong(t.author().getMostSignificantBits());
+        out.writeLong(t.author().getLeastSignificantBits());
+        out.writeBoolean(t.active());
+        out.writeLong(t.createdAt().getEpochSecond());
+        out.writeInt(t.createdAt().getNano());
+        out.writeLong(t.updatedAt().getEpochSecond());
+        out.writeInt(t.updatedAt().getNano());
+      }
+    }
+
+    // Never leave a half-written snapshot behind if we crash mid-write
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    var bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static void writeNullableString(DataOutputStream out, @Nullable String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) writeString(out, s);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    var bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static @Nullable String readNullableString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+}
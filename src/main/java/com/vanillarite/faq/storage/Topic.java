@@ -1,11 +1,17 @@
 package com.vanillarite.faq.storage;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Streams;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.vanillarite.faq.storage.supabase.Field;
+import com.vanillarite.faq.storage.supabase.Method;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
@@ -26,7 +32,11 @@ public record Topic(
     Instant createdAt,
     Instant updatedAt
 ) {
+  static final Interner<String> STRINGS = Interners.newWeakInterner();
+  static final Interner<UUID> AUTHORS = Interners.newWeakInterner();
+
   public static Topic fromJson(JsonObject json) {
+    var pos = json.get("pos").getAsJsonObject();
     return new Topic(
         json.get("id").getAsInt(),
         json.get("topic").getAsString(),
@@ -34,10 +44,7 @@ public record Topic(
         json.get("preface").isJsonNull() ? null : json.get("preface").getAsString(),
         Streams.stream(json.get("alias").getAsJsonArray().iterator()).map(JsonElement::getAsString).toList(),
         json.get("group").getAsString(),
-        new Pos(
-            json.get("pos").getAsJsonObject().get("line").getAsInt(),
-            json.get("pos").getAsJsonObject().get("col").getAsInt()
-        ),
+        new Pos(pos.get("line").getAsInt(), pos.get("col").getAsInt()),
         UUID.fromString(json.get("author").getAsString()),
         json.get("active").getAsBoolean(),
         OffsetDateTime.parse(json.get("created_at").getAsString()).toInstant(),
@@ -45,6 +52,59 @@ public record Topic(
     );
   }
 
+  /**
+   * Reads a topic straight off the token stream, without building a {@link JsonObject} first.
+   * Group names and authors repeat a lot across topics, so those are interned.
+   */
+  public static Topic read(JsonReader in) throws IOException {
+    int id = 0;
+    String topic = null;
+    String content = null;
+    String preface = null;
+    List<String> alias = List.of();
+    String group = null;
+    Pos pos = null;
+    UUID author = null;
+    boolean active = false;
+    Instant createdAt = null;
+    Instant updatedAt = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "id" -> id = in.nextInt();
+        case "topic" -> topic = in.nextString();
+        case "content" -> content = in.nextString();
+        case "preface" -> preface = nextNullableString(in);
+        case "alias" -> {
+          var aliases = new ArrayList<String>();
+          in.beginArray();
+          while (in.hasNext()) aliases.add(in.nextString());
+          in.endArray();
+          alias = List.copyOf(aliases);
+        }
+        case "group" -> group = STRINGS.intern(in.nextString());
+        case "pos" -> pos = Pos.read(in);
+        case "author" -> author = AUTHORS.intern(UUID.fromString(in.nextString()));
+        case "active" -> active = in.nextBoolean();
+        case "created_at" -> createdAt = OffsetDateTime.parse(in.nextString()).toInstant();
+        case "updated_at" -> updatedAt = OffsetDateTime.parse(in.nextString()).toInstant();
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+
+    return new Topic(id, topic, content, preface, alias, group, pos, author, active, createdAt, updatedAt);
+  }
+
+  static @Nullable String nextNullableString(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return in.nextString();
+  }
+
   public String findField(Field field) {
     return switch (field) {
       case CONTENT -> content;
@@ -57,6 +117,26 @@ public record Topic(
     };
   }
 
+  /** A copy of this topic with one field changed, the way a history row with that method describes it. */
+  public Topic withChange(Field field, Method method, String value) {
+    return switch (field) {
+      case CONTENT -> new Topic(id, topic, value, preface, alias, group, pos, author, active, createdAt, updatedAt);
+      case PREFACE -> new Topic(id, topic, content, value, alias, group, pos, author, active, createdAt, updatedAt);
+      case TOPIC -> new Topic(id, value, content, preface, alias, group, pos, author, active, createdAt, updatedAt);
+      case GROUP -> new Topic(id, topic, content, preface, alias, value, pos, author, active, createdAt, updatedAt);
+      case POS -> new Topic(id, topic, content, preface, alias, group, Pos.fromTuple(value), author, active, createdAt, updatedAt);
+      case ALIAS -> {
+        var aliases = findArrayField(field);
+        switch (method) {
+          case POST -> aliases.add(value);
+          case DELETE -> aliases.remove(value);
+          case PATCH -> throw new IllegalArgumentException("%s can only be added to or removed from".formatted(field));
+        }
+        yield new Topic(id, topic, content, preface, List.copyOf(aliases), group, pos, author, active, createdAt, updatedAt);
+      }
+    };
+  }
+
   public ArrayList<String> findArrayField(Field field) {
     return new ArrayList<>(switch (field) {
       case ALIAS -> alias;
@@ -91,6 +171,21 @@ public record Topic(
   }
 
   public record Pos(int line, int col) {
+    public static Pos read(JsonReader in) throws IOException {
+      int line = 0;
+      int col = 0;
+      in.beginObject();
+      while (in.hasNext()) {
+        switch (in.nextName()) {
+          case "line" -> line = in.nextInt();
+          case "col" -> col = in.nextInt();
+          default -> in.skipValue();
+        }
+      }
+      in.endObject();
+      return new Pos(line, col);
+    }
+
     public static Pos fromTuple(String tuple) {
       var split = tuple.substring(1, tuple.length() - 1).split(",");
       return new Pos(Integer.parseInt(split[0]), Integer.parseInt(split[1]));
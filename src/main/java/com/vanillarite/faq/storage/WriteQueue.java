@@ -0,0 +1,369 @@
+package com.vanillarite.faq.storage;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.vanillarite.faq.FaqPlugin;
+import com.vanillarite.faq.storage.supabase.Field;
+import com.vanillarite.faq.storage.supabase.Method;
+import com.vanillarite.faq.storage.supabase.SupabaseException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds quick edits to a topic for a short window, so a burst of them (moving a topic around, adding
+ * a few aliases) becomes one PATCH, one history insert and one change to the cached snapshot.
+ *
+ * <p>Edits are replayed onto the topic when the window closes, so the PATCH only carries the final
+ * value of each field, while history still gets a row per edit. Until an edit is saved it's kept in
+ * a journal in the data folder, which is replayed on the next start if the server goes down first.
+ * Only one write per topic is in flight at a time; edits arriving meanwhile wait for the next window.
+ *
+ * <p>If Supabase can't be reached, the edits stay queued (and journaled) and are retried with a
+ * growing delay; whoever made them is told they'll be saved later. They are dropped once they've
+ * been saved, turned out to conflict with someone else's change, or were refused outright.
+ */
+public final class WriteQueue {
+  private static final long MAX_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  private final FaqPlugin plugin;
+  private final FaqCache cache;
+  private final Path journal;
+  private final Map<Integer, Pending> pending = new HashMap<>();
+  private final Map<Integer, List<Edit>> flushing = new HashMap<>();
+  private final LongAdder queued;
+  private final LongAdder written;
+  private boolean closed = false;
+
+  public WriteQueue(FaqPlugin plugin, FaqCache cache, Path journal) {
+    this.plugin = plugin;
+    this.cache = cache;
+    this.journal = journal;
+    this.queued = plugin.metrics().counter("faq_write_queue_edits_total");
+    this.written = plugin.metrics().counter("faq_write_queue_flushes_total");
+  }
+
+  public record Edit(int faq, Field field, Method method, String value, UUID author) {
+    JsonObject toJson() {
+      var json = new JsonObject();
+      json.addProperty("faq", faq);
+      json.addProperty("field", field.name());
+      json.addProperty("method", method.name());
+      json.addProperty("value", value);
+      json.addProperty("author", author.toString());
+      return json;
+    }
+
+    static Edit fromJson(JsonObject json) {
+      return new Edit(
+          json.get("faq").getAsInt(),
+          Field.valueOf(json.get("field").getAsString()),
+          Method.valueOf(json.get("method").getAsString()),
+          json.get("value").getAsString(),
+          UUID.fromString(json.get("author").getAsString())
+      );
+    }
+  }
+
+  private static final class Pending {
+    final List<Edit> edits = new ArrayList<>();
+    final List<CompletableFuture<WriteResult>> waiters = new ArrayList<>();
+    int failures = 0;
+    long notBefore = 0;
+  }
+
+  /** Queues an edit, completing once the window it ended up in has been written. */
+  public CompletableFuture<WriteResult> submit(Edit edit) {
+    var result = new CompletableFuture<WriteResult>();
+    synchronized (this) {
+      try {
+        Files.createDirectories(journal.getParent());
+        Files.writeString(
+            journal,
+            edit.toJson() + "\n",
+            StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+      } catch (IOException e) {
+        plugin.getSLF4JLogger().warn("Couldn't journal an edit to #%s, it will be lost if the server stops first".formatted(edit.faq()), e);
+      }
+      if (closed) {
+        // Too late for this run, the journal will have it saved on the next start
+        result.complete(new WriteResult.Queued());
+      } else {
+        enqueue(edit).waiters.add(result);
+      }
+    }
+    queued.increment();
+    return result;
+  }
+
+  private synchronized Pending enqueue(Edit edit) {
+    var queue = pending.computeIfAbsent(edit.faq(), id -> {
+      schedule(id);
+      return new Pending();
+    });
+    queue.edits.add(edit);
+    return queue;
+  }
+
+  private void schedule(int id) {
+    schedule(id, plugin.config().writeBehind().windowMillis());
+  }
+
+  /** Only called holding the lock, so nothing is scheduled once {@link #close} has started. */
+  private void schedule(int id, long delayMillis) {
+    if (closed) return;
+    CompletableFuture
+        .delayedExecutor(delayMillis, TimeUnit.MILLISECONDS, plugin.storageExecutor())
+        .execute(() -> flush(id, false));
+  }
+
+  /** Replays edits journaled before the last shutdown. */
+  public void recover() {
+    if (!Files.exists(journal)) return;
+
+    var edits = new ArrayList<Edit>();
+    try {
+      for (var line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+        if (line.isBlank()) continue;
+        try {
+          edits.add(Edit.fromJson(JsonParser.parseString(line).getAsJsonObject()));
+        } catch (JsonParseException | IllegalStateException | IllegalArgumentException e) {
+          // Most likely the last line, cut off by a crash mid-write
+          plugin.getSLF4JLogger().warn("Skipping unreadable queued edit: {}", line);
+        }
+      }
+    } catch (IOException e) {
+      plugin.getSLF4JLogger().error("Couldn't read queued edits from %s".formatted(journal), e);
+      return;
+    }
+    if (edits.isEmpty()) return;
+
+    plugin.getLogger().info("Saving %s edits queued before the last shutdown".formatted(edits.size()));
+    edits.forEach(this::enqueue);
+  }
+
+  private void flush(int id, boolean draining) {
+    Pending queue;
+    synchronized (this) {
+      if (closed && !draining) return;
+      if (flushing.containsKey(id)) {
+        // Let the running write land first, so this one is based on its result
+        schedule(id);
+        return;
+      }
+      queue = pending.get(id);
+      if (queue == null) return;
+      var wait = TimeUnit.NANOSECONDS.toMillis(queue.notBefore - System.nanoTime());
+      if (!draining && queue.failures > 0 && wait > 0) {
+        schedule(id, wait);
+        return;
+      }
+      pending.remove(id);
+      flushing.put(id, queue.edits);
+    }
+
+    WriteResult result;
+    try {
+      result = write(id, queue.edits);
+    } catch (Exception e) {
+      if (!isTransient(e)) {
+        // Retrying won't change the answer, so don't keep the edits around to be refused forever
+        plugin.getSLF4JLogger().error("Dropping %s queued edits to #%s, they can't be saved"
+            .formatted(queue.edits.size(), id), e);
+        result = new WriteResult.Failure();
+      } else {
+        var delay = retryDelay(queue.failures + 1);
+        plugin.getSLF4JLogger().error("Saving %s queued edits to #%s failed, trying again in %ss"
+            .formatted(queue.edits.size(), id, TimeUnit.MILLISECONDS.toSeconds(delay)), e);
+        synchronized (this) {
+          flushing.remove(id);
+          requeue(id, queue, delay);
+        }
+        for (var waiter : queue.waiters) waiter.complete(new WriteResult.Queued());
+        return;
+      }
+    }
+
+    synchronized (this) {
+      flushing.remove(id);
+      rewriteJournal();
+    }
+    written.increment();
+
+    if (queue.waiters.isEmpty() && result instanceof WriteResult.Conflict) {
+      plugin.getSLF4JLogger().warn("Queued edits to #{} from before the last shutdown were not saved: {}", id, result);
+    }
+    for (var waiter : queue.waiters) waiter.complete(result);
+  }
+
+  /**
+   * Whether a failed write is worth retrying: Supabase couldn't be reached or had trouble of its
+   * own. Anything it refused (the topic is gone, a name is taken) or that we couldn't even build
+   * would fail the same way every time.
+   */
+  private static boolean isTransient(Exception e) {
+    return e instanceof IOException
+        || e instanceof UncheckedIOException
+        || e instanceof InterruptedException
+        || e instanceof SupabaseException s && s.isTransient();
+  }
+
+  private long retryDelay(int failures) {
+    var window = Math.max(1, plugin.config().writeBehind().windowMillis());
+    return Math.min(MAX_RETRY_MILLIS, window * (1L << Math.min(failures, 20)));
+  }
+
+  /** Puts edits that couldn't be saved back in front of anything queued for the topic since. */
+  private void requeue(int id, Pending failed, long delayMillis) {
+    var retry = new Pending();
+    retry.failures = failed.failures + 1;
+    retry.notBefore = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    retry.edits.addAll(failed.edits);
+
+    var newer = pending.remove(id);
+    if (newer != null) {
+      retry.edits.addAll(newer.edits);
+      retry.waiters.addAll(newer.waiters);
+    }
+    pending.put(id, retry);
+    schedule(id, delayMillis);
+  }
+
+  /**
+   * Writes every edit as one PATCH on top of the cached version of the topic. On a conflict, the
+   * edits are replayed once on top of the new version, unless a field was set to a plain value here
+   * while someone else set it too.
+   */
+  private WriteResult write(int id, List<Edit> edits) throws IOException, InterruptedException {
+    var sb = plugin.supabase();
+    var base = cache.get().byId(id).orElseGet(() -> cache.findNow(id));
+
+    for (int attempt = 0; ; attempt++) {
+      var working = base;
+      var batch = new HistoryBatch(edits.get(0).author());
+      var fields = EnumSet.noneOf(Field.class);
+      var overwritten = EnumSet.noneOf(Field.class);
+      for (var e : edits) {
+        var before = switch (e.method()) {
+          case PATCH -> working.findField(e.field());
+          case POST -> null;
+          case DELETE -> e.value();
+        };
+        working = working.withChange(e.field(), e.method(), e.value());
+        batch.add(e.author(), id, e.method(), e.field(), before, e.method() == Method.DELETE ? "" : e.value());
+        fields.add(e.field());
+        if (e.method() == Method.PATCH) overwritten.add(e.field());
+      }
+
+      var body = new JsonObject();
+      for (var field : fields) body.add(field.name().toLowerCase(), jsonValue(working, field));
+
+      var updated = cache.patchIfUnchanged(sb, base, body);
+      if (updated.isPresent()) {
+        cache.apply(updated.get());
+        try {
+          cache.logHistory(sb, batch);
+        } catch (RuntimeException e) {
+          plugin.getSLF4JLogger().error("#%s was modified, but logging it to history failed".formatted(id), e);
+        }
+        plugin.debug("Saved %s queued edits to #%s in one write".formatted(edits.size(), id));
+        return new WriteResult.Success(updated.get());
+      }
+
+      var current = cache.findNow(id);
+      var previous = base;
+      var mergeable = overwritten.stream()
+          .allMatch(f -> Objects.equals(current.findField(f), previous.findField(f)));
+      if (attempt > 0 || !mergeable) return new WriteResult.Conflict(current);
+      base = current;
+    }
+  }
+
+  private static JsonElement jsonValue(Topic topic, Field field) {
+    return switch (field) {
+      case ALIAS -> {
+        var array = new JsonArray();
+        topic.alias().forEach(array::add);
+        yield array;
+      }
+      case POS -> topic.pos().toJson();
+      case PREFACE -> topic.preface() == null ? JsonNull.INSTANCE : new JsonPrimitive(topic.preface());
+      default -> new JsonPrimitive(topic.findField(field));
+    };
+  }
+
+  /** Keeps only the edits that haven't been saved yet. */
+  private void rewriteJournal() {
+    var lines = new StringBuilder();
+    flushing.values().forEach(edits -> edits.forEach(e -> lines.append(e.toJson()).append('\n')));
+    pending.values().forEach(queue -> queue.edits.forEach(e -> lines.append(e.toJson()).append('\n')));
+
+    try {
+      if (lines.isEmpty()) {
+        Files.deleteIfExists(journal);
+        return;
+      }
+      var temp = journal.resolveSibling(journal.getFileName() + ".tmp");
+      Files.writeString(temp, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DSYNC);
+      Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      plugin.getSLF4JLogger().warn("Couldn't update the queued edit journal, saved edits may be replayed on next start", e);
+    }
+  }
+
+  /**
+   * Writes whatever is still queued, waiting up to the configured time. Edits that don't make it
+   * stay in the journal for the next start, and anyone still waiting on them is told so.
+   */
+  public void close() {
+    List<Integer> ids;
+    synchronized (this) {
+      // From here on nothing new is scheduled, the storage executor is about to go away
+      closed = true;
+      ids = new ArrayList<>(pending.keySet());
+    }
+
+    var writes = ids.stream()
+        .map(id -> CompletableFuture.runAsync(() -> flush(id, true), plugin.storageExecutor()))
+        .toArray(CompletableFuture[]::new);
+    try {
+      CompletableFuture.allOf(writes).get(plugin.config().writeBehind().shutdownFlushSeconds(), TimeUnit.SECONDS);
+    } catch (TimeoutException | ExecutionException e) {
+      plugin.getLogger().warning("Not every queued edit was saved, the rest will be saved on next start");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    var left = new ArrayList<CompletableFuture<WriteResult>>();
+    synchronized (this) {
+      for (var queue : pending.values()) {
+        left.addAll(queue.waiters);
+        queue.waiters.clear();
+      }
+    }
+    for (var waiter : left) waiter.complete(new WriteResult.Queued());
+  }
+}
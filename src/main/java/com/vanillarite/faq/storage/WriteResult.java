@@ -0,0 +1,14 @@
+package com.vanillarite.faq.storage;
+
+/** Outcome of modifying a topic. */
+public sealed interface WriteResult {
+  record Success(Topic topic) implements WriteResult {}
+
+  /** Someone else changed the same field first, nothing was written. */
+  record Conflict(Topic current) implements WriteResult {}
+
+  record Failure() implements WriteResult {}
+
+  /** Not saved yet, but kept in the write-behind journal to be retried. */
+  record Queued() implements WriteResult {}
+}
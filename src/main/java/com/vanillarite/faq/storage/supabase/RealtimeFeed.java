@@ -0,0 +1,225 @@
+package com.vanillarite.faq.storage.supabase;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.vanillarite.faq.FaqPlugin;
+import com.vanillarite.faq.storage.FaqCache;
+import com.vanillarite.faq.storage.Topic;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.net.URI;
+import java.net.http.WebSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Subscribes to Supabase Realtime (Postgres changes on the {@code faqs} table) and applies each
+ * insert, update and soft-delete to the cache as it happens. While the feed is joined the cache does
+ * not expire on its own; if the socket drops, the regular TTL takes over again until it reconnects.
+ */
+public final class RealtimeFeed {
+  private static final String CHANNEL = "realtime:public:faqs";
+
+  private final FaqPlugin plugin;
+  private final FaqCache cache;
+  private final SupabaseConnection sb;
+  private final int heartbeatTicks;
+  private final int reconnectTicks;
+  private final AtomicInteger ref = new AtomicInteger();
+  private CompletableFuture<WebSocket> sending = CompletableFuture.completedFuture(null);
+  private volatile WebSocket socket;
+  private volatile BukkitTask heartbeat;
+  private volatile String joinRef;
+  private volatile boolean closed = false;
+
+  public RealtimeFeed(FaqPlugin plugin, FaqCache cache) {
+    this.plugin = plugin;
+    this.cache = cache;
+    this.sb = plugin.supabase();
+    var config = plugin.config().supabase().realtime();
+    this.heartbeatTicks = config.heartbeatSeconds() * 20;
+    this.reconnectTicks = config.reconnectSeconds() * 20;
+  }
+
+  public void start() {
+    var base = sb.uri();
+    var scheme = base.getScheme().equals("http") ? "ws" : "wss";
+    var uri = URI.create("%s://%s/realtime/v1/websocket?apikey=%s&vsn=1.0.0"
+        .formatted(scheme, base.getRawAuthority(), sb.anonKey()));
+
+    sb.client().newWebSocketBuilder()
+        .buildAsync(uri, new Listener())
+        .whenComplete((ws, e) -> {
+          if (e != null) {
+            plugin.getLogger().warning("Couldn't connect to Supabase Realtime: " + e.getMessage());
+            scheduleReconnect();
+          }
+        });
+  }
+
+  public void close() {
+    closed = true;
+    var ws = socket;
+    disconnected();
+    if (ws != null) ws.sendClose(WebSocket.NORMAL_CLOSURE, "");
+  }
+
+  private synchronized void send(JsonObject message) {
+    var ws = socket;
+    if (ws == null) return;
+    var text = message.toString();
+    sending = sending
+        .exceptionally(e -> null)
+        .thenCompose(i -> ws.sendText(text, true));
+  }
+
+  private JsonObject message(String topic, String event, JsonObject payload) {
+    var message = new JsonObject();
+    message.addProperty("topic", topic);
+    message.addProperty("event", event);
+    message.add("payload", payload);
+    message.addProperty("ref", String.valueOf(ref.incrementAndGet()));
+    return message;
+  }
+
+  private void join() {
+    var change = new JsonObject();
+    change.addProperty("event", "*");
+    change.addProperty("schema", "public");
+    change.addProperty("table", "faqs");
+    var changes = new JsonArray();
+    changes.add(change);
+
+    var config = new JsonObject();
+    config.add("postgres_changes", changes);
+    var payload = new JsonObject();
+    payload.add("config", config);
+    payload.addProperty("access_token", sb.authKey());
+
+    var message = message(CHANNEL, "phx_join", payload);
+    joinRef = message.get("ref").getAsString();
+    send(message);
+  }
+
+  private void joined() {
+    plugin.getLogger().info("Subscribed to FAQ changes over Supabase Realtime");
+    // Changes made while we weren't listening are lost, so resynchronize once, and only stop
+    // expiring once a load that started after the join has actually made it into the cache
+    var joinedAs = joinRef;
+    cache.refresh().whenComplete((fresh, e) -> {
+      if (e == null && fresh && joinedAs.equals(joinRef) && socket != null) {
+        cache.setExpiring(false);
+      } else {
+        plugin.getLogger().warning("Couldn't resynchronize after subscribing to Supabase Realtime, polling until the next load");
+      }
+    });
+  }
+
+  private void rejoin() {
+    if (closed || socket == null) return;
+    plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, () -> {
+      if (!closed && socket != null) join();
+    }, reconnectTicks);
+  }
+
+  private void disconnected() {
+    socket = null;
+    cache.setExpiring(true);
+    var task = heartbeat;
+    if (task != null) task.cancel();
+  }
+
+  private void scheduleReconnect() {
+    if (closed || !plugin.isEnabled()) return;
+    plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, this::start, reconnectTicks);
+  }
+
+  void handle(String text) {
+    var message = JsonParser.parseString(text).getAsJsonObject();
+    var event = message.get("event").getAsString();
+    var payload = message.getAsJsonObject("payload");
+
+    switch (event) {
+      case "phx_reply" -> {
+        var replyRef = message.get("ref");
+        if (replyRef != null && !replyRef.isJsonNull() && replyRef.getAsString().equals(joinRef)) {
+          if (payload.get("status").getAsString().equals("ok")) joined();
+          else plugin.getLogger().warning("Supabase Realtime refused to subscribe: " + payload);
+        }
+      }
+      case "postgres_changes" -> applyChange(payload.getAsJsonObject("data"));
+      case "phx_error", "phx_close" -> {
+        if (!message.get("topic").getAsString().equals(CHANNEL)) return;
+        plugin.getLogger().warning("Supabase Realtime channel closed, polling until it is rejoined");
+        joinRef = null;
+        cache.setExpiring(true);
+        rejoin();
+      }
+      default -> {}
+    }
+  }
+
+  private void applyChange(JsonObject data) {
+    var type = data.get("type").getAsString();
+    if (type.equals("DELETE")) {
+      var id = data.getAsJsonObject("old_record").get("id").getAsInt();
+      plugin.debug("Realtime: #%s was removed".formatted(id));
+      cache.remove(id);
+    } else {
+      // Soft-deletes arrive as an UPDATE setting active to false, which apply() drops
+      var topic = Topic.fromJson(data.getAsJsonObject("record"));
+      plugin.debug("Realtime: #%s was %s".formatted(topic.id(), type.toLowerCase()));
+      cache.apply(topic);
+    }
+  }
+
+  /** Handles one socket's messages. Exposed so tests can drive it with a stand-in socket. */
+  final class Listener implements WebSocket.Listener {
+    private final StringBuilder buffer = new StringBuilder();
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+      socket = webSocket;
+      join();
+      heartbeat = plugin.getServer().getScheduler().runTaskTimerAsynchronously(
+          plugin,
+          () -> send(message("phoenix", "heartbeat", new JsonObject())),
+          heartbeatTicks,
+          heartbeatTicks);
+      webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+      buffer.append(data);
+      if (last) {
+        var text = buffer.toString();
+        buffer.setLength(0);
+        try {
+          handle(text);
+        } catch (RuntimeException e) {
+          plugin.getSLF4JLogger().error("Couldn't handle Supabase Realtime message: {}", text, e);
+        }
+      }
+      webSocket.request(1);
+      return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+      plugin.getLogger().warning("Supabase Realtime disconnected (%s %s), falling back to polling".formatted(statusCode, reason));
+      disconnected();
+      scheduleReconnect();
+      return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+      plugin.getLogger().warning("Supabase Realtime failed, falling back to polling: " + error.getMessage());
+      disconnected();
+      scheduleReconnect();
+    }
+  }
+}
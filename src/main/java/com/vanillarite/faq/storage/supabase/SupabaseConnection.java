@@ -1,12 +1,83 @@
 package com.vanillarite.faq.storage.supabase;
 
+import com.vanillarite.faq.config.SupabaseConfig;
+import com.vanillarite.faq.metrics.Metrics;
+
+import java.io.IOException;
 import java.net.URI;
+import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Long-lived connection to the Supabase REST API. The underlying {@link HttpClient} keeps its
+ * connections alive and multiplexes over HTTP/2, so it should be shared rather than recreated per
+ * request.
+ *
+ * <p>{@code max_concurrent_requests} bounds how many requests are waiting on Supabase at once, up to
+ * the point their response headers arrive. Bodies read through a streaming handler such as
+ * {@link HttpResponse.BodyHandlers#ofInputStream()} are consumed after the permit has been given
+ * back, since holding it until every caller closes its stream would let one forgotten stream starve
+ * all the others.
+ */
+public final class SupabaseConnection {
+  private final URI uri;
+  private final String anonKey;
+  private final String authKey;
+  private final Duration requestTimeout;
+  private final Semaphore permits;
+  private final HttpClient client;
+  private final Metrics metrics;
+  private final SupabaseConfig config;
+
+  public SupabaseConnection(SupabaseConfig config, Executor executor, Metrics metrics) {
+    this.uri = config.url();
+    this.anonKey = config.anonKey();
+    this.authKey = config.authKey();
+    this.requestTimeout = Duration.ofSeconds(config.requestTimeoutSeconds());
+    this.permits = new Semaphore(config.maxConcurrentRequests());
+    this.client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_2)
+        .connectTimeout(Duration.ofSeconds(config.connectTimeoutSeconds()))
+        .executor(executor)
+        .build();
+    this.metrics = metrics;
+    this.config = config;
+  }
+
+  /** Whether this connection was made with exactly these settings, i.e. can be kept on reload. */
+  public boolean matches(SupabaseConfig config) {
+    return this.config.equals(config);
+  }
+
+  /** Stops accepting new requests. Ones already running are left to finish. */
+  public void close() {
+    client.shutdown();
+  }
+
+  public URI uri() {
+    return uri;
+  }
+
+  public String anonKey() {
+    return anonKey;
+  }
+
+  public String authKey() {
+    return authKey;
+  }
+
+  public HttpClient client() {
+    return client;
+  }
 
-public record SupabaseConnection(URI uri, String anonKey, String authKey) {
   public HttpRequest.Builder request(String table) {
     return HttpRequest.newBuilder()
         .uri(uri.resolve("/rest/v1/" + table))
+        .timeout(requestTimeout)
         .header("apikey", anonKey)
         .header("authorization", "Bearer " + authKey)
         .header("content-type", "application/json");
@@ -17,5 +88,22 @@ public record SupabaseConnection(URI uri, String anonKey, String authKey) {
         .header("prefer", "return=representation")
         .header("accept", "application/vnd.pgrst.object+json");
   }
-}
 
+  /** Sends a request, holding one of the concurrency permits until its response headers arrive. */
+  public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+      throws IOException, InterruptedException {
+    var stats = metrics.request(request.method(), request.uri().getPath());
+    permits.acquire();
+    long start = System.nanoTime();
+    try {
+      var response = client.send(request, handler);
+      stats.response(response.statusCode(), start);
+      return response;
+    } catch (IOException | InterruptedException | RuntimeException e) {
+      stats.failure(start);
+      throw e;
+    } finally {
+      permits.release();
+    }
+  }
+}
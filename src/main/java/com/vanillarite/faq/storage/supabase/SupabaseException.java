@@ -0,0 +1,20 @@
+package com.vanillarite.faq.storage.supabase;
+
+/** Supabase answered, but with an error status. */
+public class SupabaseException extends IllegalStateException {
+  private final int status;
+
+  public SupabaseException(String message, int status) {
+    super(message);
+    this.status = status;
+  }
+
+  public int status() {
+    return status;
+  }
+
+  /** Whether the same request could succeed later, as opposed to being refused outright. */
+  public boolean isTransient() {
+    return status >= 500 || status == 408 || status == 429;
+  }
+}
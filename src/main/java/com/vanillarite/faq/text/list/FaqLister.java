@@ -22,6 +22,7 @@ import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static com.vanillarite.faq.FaqPlugin.m;
 import static net.kyori.adventure.text.Component.empty;
@@ -30,7 +31,7 @@ import static net.kyori.adventure.text.event.HoverEvent.showText;
 public final class FaqLister {
   public final ListMessages.ListSection section;
   private final String command;
-  private final FaqCache cache;
+  private final Supplier<? extends Collection<Topic>> source;
   private final Predicate<String> permissionCheck;
   private final Consumer<Component> lineConsumer;
   @Nullable private final BiFunction<Topic, Component, Component> topicCallback;
@@ -58,13 +59,31 @@ public final class FaqLister {
       Predicate<String> permissionCheck,
       Consumer<Component> lineConsumer,
       @Nullable BiFunction<Topic, Component, Component> topicCallback) {
+    this(
+        style,
+        command,
+        plugin.config().messages().list(),
+        () -> cache.get().visible(),
+        permissionCheck,
+        lineConsumer,
+        topicCallback);
+  }
+
+  public FaqLister(
+      PrefixKind style,
+      String command,
+      ListMessages messages,
+      Supplier<? extends Collection<Topic>> source,
+      Predicate<String> permissionCheck,
+      Consumer<Component> lineConsumer,
+      @Nullable BiFunction<Topic, Component, Component> topicCallback) {
     this.command = command;
-    this.cache = cache;
+    this.source = source;
     this.permissionCheck = permissionCheck;
     this.lineConsumer = lineConsumer;
     this.topicCallback = topicCallback;
-    this.section = plugin.config().messages().list().get(style);
-    this.generalSection = plugin.config().messages().list();
+    this.section = messages.get(style);
+    this.generalSection = messages;
     this.defaultGroup = generalSection.defaultGroup();
     this.maxPerLine = section.maxPerLine();
   }
@@ -158,8 +177,8 @@ public final class FaqLister {
   private Multimap<String, Topic> topicsByGroup() {
     Multimap<String, Topic> topicsByGroup = MultimapBuilder.hashKeys().arrayListValues().build();
 
-    cache
-        .getIgnoreEmpty()
+    source
+        .get()
         .forEach(
             (faq) -> {
               if (checkGroup(faq.group())) topicsByGroup.put(faq.group(), faq);
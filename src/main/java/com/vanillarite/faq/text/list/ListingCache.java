@@ -0,0 +1,69 @@
+package com.vanillarite.faq.text.list;
+
+import com.vanillarite.faq.FaqPlugin;
+import com.vanillarite.faq.config.PrefixKind;
+import com.vanillarite.faq.metrics.Histogram;
+import com.vanillarite.faq.storage.FaqCache;
+import com.vanillarite.faq.storage.FaqSnapshot;
+import net.kyori.adventure.text.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the lines {@link FaqLister} emits for each combination of list style and visible
+ * groups. Only a handful of permission combinations exist on a server, so after the first listing
+ * per snapshot, {@code /faq} and {@code /faq4u} just replay pre-built components.
+ */
+public final class ListingCache {
+  private final FaqPlugin plugin;
+  private final FaqCache cache;
+  private final Map<Key, List<Component>> listings = new ConcurrentHashMap<>();
+  private final Histogram listingTime;
+  private volatile FaqSnapshot listedFor;
+
+  public ListingCache(FaqPlugin plugin, FaqCache cache) {
+    this.plugin = plugin;
+    this.cache = cache;
+    this.listingTime = plugin.metrics().histogram("faq_render_seconds", "kind", "listing");
+  }
+
+  public void clear() {
+    listings.clear();
+  }
+
+  private void checkSnapshot() {
+    var current = cache.get();
+    if (current != listedFor) {
+      clear();
+      listedFor = current;
+    }
+  }
+
+  /**
+   * The listing lines (without the sender's prefix) for someone who can see the given non-default
+   * groups. With {@code withInsertions}, shift-clicking a topic inserts its editor command.
+   */
+  public List<Component> lines(PrefixKind style, Set<String> groups, boolean withInsertions) {
+    checkSnapshot();
+    return listings.computeIfAbsent(new Key(style, Set.copyOf(groups), withInsertions), k -> {
+      long start = System.nanoTime();
+      var lines = new ArrayList<Component>();
+      new FaqLister(
+          style,
+          style.name().toLowerCase(),
+          plugin, cache,
+          k.groups()::contains,
+          lines::add,
+          withInsertions ? (t, c) -> c.insertion("/faqeditor actions %s".formatted(t.id())) : null
+      ).run();
+      listingTime.recordSince(start);
+      return List.copyOf(lines);
+    });
+  }
+
+  private record Key(PrefixKind style, Set<String> groups, boolean withInsertions) {}
+}
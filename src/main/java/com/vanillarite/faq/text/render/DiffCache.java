@@ -0,0 +1,106 @@
+package com.vanillarite.faq.text.render;
+
+import com.github.difflib.algorithm.DiffException;
+import com.github.difflib.text.DiffRowGenerator;
+import com.vanillarite.faq.FaqPlugin;
+import com.vanillarite.faq.storage.FaqCache;
+import com.vanillarite.faq.storage.History;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static com.vanillarite.faq.FaqPlugin.m;
+import static net.kyori.adventure.text.Component.text;
+import static net.kyori.adventure.text.format.NamedTextColor.*;
+
+/**
+ * Renders the {@code /faqeditor admin inspect} diff of a history row off the server thread. History
+ * rows never change, so finished renders are kept (and requests for a render that's still running
+ * share it) until they fall out of the small LRU.
+ */
+public final class DiffCache {
+  private static final int CAPACITY = 32;
+
+  private final FaqPlugin plugin;
+  private final FaqCache cache;
+  private final Map<Integer, CompletableFuture<Optional<Component>>> renders =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CompletableFuture<Optional<Component>>> eldest) {
+          return size() > CAPACITY;
+        }
+      };
+
+  public DiffCache(FaqPlugin plugin, FaqCache cache) {
+    this.plugin = plugin;
+    this.cache = cache;
+  }
+
+  public void clear() {
+    synchronized (renders) {
+      renders.clear();
+    }
+  }
+
+  /** The whole inspection as one multi-line component, or empty if the row couldn't be fetched. */
+  public CompletableFuture<Optional<Component>> inspect(int historyId) {
+    CompletableFuture<Optional<Component>> render;
+    synchronized (renders) {
+      render = renders.get(historyId);
+      if (render != null) return render;
+      render = CompletableFuture.supplyAsync(
+          () -> cache.supabaseGetHistorySingle(plugin.supabase(), historyId).flatMap(this::render),
+          plugin.storageExecutor()
+      );
+      renders.put(historyId, render);
+    }
+
+    // Don't remember failures, the next click should try again
+    var started = render;
+    render.whenComplete((result, e) -> {
+      if (e != null || result.isEmpty()) {
+        synchronized (renders) {
+          renders.remove(historyId, started);
+        }
+      }
+    });
+    return render;
+  }
+
+  private Optional<Component> render(History history) {
+    var delimiter = text("====== Modification inspection for %s ======".formatted(history.id()));
+    try {
+      var drg = DiffRowGenerator.create()
+          .showInlineDiffs(true)
+          .mergeOriginalRevised(true)
+          .lineNormalizer(i -> i.replace("<", "\\<"))
+          .oldTag(f -> f ? "<red><st>" : "</st></red>")
+          .newTag(f -> f ? "<green><u>" : "</u></green>")
+          .build();
+      var rows = drg.generateDiffRows(List.of(history.beforeOrBlank().split("\n")), List.of(history.after().split("\n")));
+
+      var lines = new ArrayList<Component>(rows.size() + 2);
+      lines.add(delimiter);
+      rows.forEach(r -> {
+        var prefix = switch (r.getTag()) {
+          case EQUAL -> text(" = ", WHITE);
+          case INSERT -> text(" + ", GREEN);
+          case DELETE -> text(" - ", RED);
+          case CHANGE -> text(" > ", YELLOW);
+        };
+        lines.add(text("", GRAY).append(prefix).append(text("| ", DARK_GRAY)).append(m.deserialize(r.getOldLine())));
+      });
+      lines.add(delimiter);
+      return Optional.of(Component.join(JoinConfiguration.newlines(), lines));
+    } catch (DiffException e) {
+      e.printStackTrace();
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.vanillarite.faq.text.render;
+
+import com.vanillarite.faq.FaqPlugin;
+import com.vanillarite.faq.config.PrefixKind;
+import com.vanillarite.faq.metrics.Histogram;
+import com.vanillarite.faq.storage.FaqCache;
+import com.vanillarite.faq.storage.FaqSnapshot;
+import com.vanillarite.faq.storage.Topic;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.vanillarite.faq.FaqPlugin.m;
+import static net.kyori.adventure.text.event.ClickEvent.runCommand;
+import static net.kyori.adventure.text.event.HoverEvent.showText;
+
+/**
+ * Keeps the deserialized components for topic bodies and previews, since parsing the same
+ * MiniMessage over and over for popular topics is pure waste. Entries are keyed by the topic's
+ * {@code updatedAt}, and everything is dropped whenever the cache hands out a new snapshot or the
+ * config is reloaded.
+ */
+public final class RenderCache {
+  private final FaqPlugin plugin;
+  private final FaqCache cache;
+  private final Map<Key, Component> bodies = new ConcurrentHashMap<>();
+  private final Map<Key, List<Component>> previews = new ConcurrentHashMap<>();
+  private final Map<Key, List<Broadcast>> broadcasts = new ConcurrentHashMap<>();
+  private final Histogram bodyTime;
+  private final Histogram previewTime;
+  private final Histogram broadcastTime;
+  private volatile FaqSnapshot renderedFor;
+
+  public RenderCache(FaqPlugin plugin, FaqCache cache) {
+    this.plugin = plugin;
+    this.cache = cache;
+    this.bodyTime = plugin.metrics().histogram("faq_render_seconds", "kind", "body");
+    this.previewTime = plugin.metrics().histogram("faq_render_seconds", "kind", "preview");
+    this.broadcastTime = plugin.metrics().histogram("faq_render_seconds", "kind", "broadcast");
+  }
+
+  public void clear() {
+    bodies.clear();
+    previews.clear();
+    broadcasts.clear();
+  }
+
+  private void checkSnapshot() {
+    var current = cache.get();
+    if (current != renderedFor) {
+      clear();
+      renderedFor = current;
+    }
+  }
+
+  /** The full body of a topic as shown by {@code /faq <topic>}, including prefix and header. */
+  public Component body(Topic t, PrefixKind kind) {
+    checkSnapshot();
+    return bodies.computeIfAbsent(new Key(t.id(), t.updatedAt(), kind), k -> {
+      long start = System.nanoTime();
+      var section = plugin.config().messages();
+      var body = m.deserialize(
+          plugin.config().prefix().get(kind) + section.header() + "<reset>\n\n" + t.content() + "\n",
+          Placeholder.unparsed("topic", t.topic())
+      );
+      bodyTime.recordSince(start);
+      return body;
+    });
+  }
+
+  /** The lines broadcast by {@code /faq4u <topic>}, including the "keep reading" line if needed. */
+  private List<Component> preview(Topic t, PrefixKind kind) {
+    return previews.computeIfAbsent(new Key(t.id(), t.updatedAt(), kind), k -> {
+      long start = System.nanoTime();
+      var section = plugin.config().messages();
+      var prefix = plugin.config().prefix().get(kind);
+      var preface = t.smartPreface(section.maxPreviewLines());
+      var keepReading = showText(
+          m.deserialize(section.keepReadingHover(), Placeholder.unparsed("topic", t.topic()))
+      );
+
+      var lines = new ArrayList<Component>();
+      preface.lines().forEach(i -> {
+        var component = m.deserialize(prefix + i);
+        if (preface.isContinuable()) {
+          component = component
+              .clickEvent(runCommand("/faq " + t.topic()))
+              .hoverEvent(keepReading);
+        }
+        lines.add(component);
+      });
+      if (preface.isPreview()) {
+        lines.add(m.deserialize(prefix + section.keepReading())
+            .clickEvent(runCommand("/faq " + t.topic()))
+            .hoverEvent(keepReading));
+      }
+      previewTime.recordSince(start);
+      return List.copyOf(lines);
+    });
+  }
+
+  /**
+   * The whole {@link #preview} merged into a single component, along with its serialized proxy
+   * message, so a {@code /faq4u} is one plugin message instead of one per line. If the merged
+   * preview is too long for a single plugin message, it's one broadcast per line after all.
+   */
+  public List<Broadcast> broadcast(Topic t, PrefixKind kind) {
+    checkSnapshot();
+    return broadcasts.computeIfAbsent(new Key(t.id(), t.updatedAt(), kind), k -> {
+      var lines = preview(t, kind);
+      var component = Component.join(JoinConfiguration.newlines(), lines);
+      long start = System.nanoTime();
+      try {
+        var payload = FaqPlugin.messageRawPayload(component);
+        if (payload != null) return List.of(new Broadcast(component, payload));
+
+        plugin.debug("Preview of %s is too long for one proxy message, sending it line by line".formatted(t.topic()));
+        var perLine = new ArrayList<Broadcast>(lines.size());
+        for (var line : lines) perLine.add(new Broadcast(line, FaqPlugin.messageRawPayload(line)));
+        return List.copyOf(perLine);
+      } finally {
+        broadcastTime.recordSince(start);
+      }
+    });
+  }
+
+  /** One broadcast; without a payload it's too long to go through the proxy at all. */
+  public record Broadcast(Component component, byte @Nullable [] payload) {}
+
+  private record Key(int id, Instant updatedAt, PrefixKind kind) {}
+}
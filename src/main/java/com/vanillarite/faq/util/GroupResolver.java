@@ -0,0 +1,95 @@
+package com.vanillarite.faq.util;
+
+import com.vanillarite.faq.FaqPlugin;
+import com.vanillarite.faq.storage.FaqCache;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Works out which FAQ groups a sender may see, checking each {@code vfaq.group.<group>} permission
+ * once and remembering the result per player. Lookups, listings and tab completion all share it.
+ *
+ * <p>Bukkit has no event for permission changes, so results are also re-checked after a short
+ * while, and dropped whenever the player leaves or changes worlds (where per-world permissions
+ * might differ).
+ */
+public final class GroupResolver implements Listener {
+  private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+  private final FaqPlugin plugin;
+  private final FaqCache cache;
+  private final Map<UUID, Resolved> byPlayer = new ConcurrentHashMap<>();
+  private volatile Nodes nodes = new Nodes(List.of(), new String[0]);
+
+  public GroupResolver(FaqPlugin plugin, FaqCache cache) {
+    this.plugin = plugin;
+    this.cache = cache;
+  }
+
+  public void clear() {
+    byPlayer.clear();
+  }
+
+  private Nodes nodes() {
+    var groups = cache.get().groups();
+    var current = nodes;
+    if (current.groups() == groups || current.groups().equals(groups)) return current;
+
+    var permissions = new String[groups.size()];
+    for (int i = 0; i < permissions.length; i++) permissions[i] = "vfaq.group." + groups.get(i);
+    current = new Nodes(groups, permissions);
+    nodes = current;
+    return current;
+  }
+
+  private Set<String> resolve(CommandSender sender, Nodes nodes) {
+    var visible = new HashSet<String>();
+    visible.add(plugin.config().messages().list().defaultGroup());
+    for (int i = 0; i < nodes.permissions().length; i++) {
+      if (sender.hasPermission(nodes.permissions()[i])) visible.add(nodes.groups().get(i));
+    }
+    return Set.copyOf(visible);
+  }
+
+  /** Every group the sender can see, always including the default group. */
+  public Set<String> visibleGroups(CommandSender sender) {
+    var nodes = nodes();
+    if (!(sender instanceof Player player)) return resolve(sender, nodes);
+
+    var cached = byPlayer.get(player.getUniqueId());
+    var now = System.nanoTime();
+    if (cached != null && cached.nodes() == nodes && now - cached.resolvedAt() < TTL_NANOS) {
+      return cached.visible();
+    }
+
+    var visible = resolve(sender, nodes);
+    byPlayer.put(player.getUniqueId(), new Resolved(nodes, visible, now));
+    return visible;
+  }
+
+  @EventHandler
+  public void onQuit(PlayerQuitEvent event) {
+    byPlayer.remove(event.getPlayer().getUniqueId());
+  }
+
+  @EventHandler
+  public void onChangedWorld(PlayerChangedWorldEvent event) {
+    byPlayer.remove(event.getPlayer().getUniqueId());
+  }
+
+  private record Nodes(List<String> groups, String[] permissions) {}
+
+  private record Resolved(Nodes nodes, Set<String> visible, long resolvedAt) {}
+}
@@ -1,38 +1,221 @@
 package com.vanillarite.faq.util;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.vanillarite.faq.metrics.CacheStats;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
+/**
+ * Caches a single value produced by a (usually slow) supplier.
+ *
+ * <p>When constructed with a refresh executor, the cache works in stale-while-revalidate mode:
+ * once a value has been loaded, {@link #get()} never blocks again. A reload is started in the
+ * background a little before the value would expire, concurrent reloads are merged into one, and
+ * a reload that fails or returns {@code null} keeps the last good value around. Failed reloads are
+ * retried with a back-off, whether they were due to expiry or to {@link #invalidate()}.
+ *
+ * <p>Every {@link #update} and {@link #invalidate()} bumps a generation counter. A background load
+ * that was running while the generation changed may have read data older than that change, so it is
+ * run again instead of overwriting it.
+ */
 public class SingleCache<T> {
-  private static final Integer KEY = 0;
+  private static final long MAX_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+  private static final int MAX_LOAD_ATTEMPTS = 3;
 
-  private final Cache<Integer, T> cache;
   private final Callable<T> supplier;
+  private final long durationNanos;
+  private final @Nullable Executor refreshExecutor;
+  private final CacheStats stats;
+  private final AtomicReference<CompletableFuture<T>> inFlight = new AtomicReference<>();
+  private volatile T value;
+  private volatile long loadedAt;
+  private volatile long refreshAt;
+  private volatile boolean stale = false;
+  private volatile boolean expiring = true;
+  private long generation = 0;
+  private long storedGeneration = -1;
 
   public SingleCache(Callable<T> supplier, long duration, TimeUnit unit) {
+    this(supplier, duration, unit, null, CacheStats.unregistered());
+  }
+
+  public SingleCache(
+      Callable<T> supplier, long duration, TimeUnit unit, @Nullable Executor refreshExecutor, CacheStats stats) {
     this.supplier = supplier;
-    this.cache = CacheBuilder.newBuilder().expireAfterWrite(duration, unit).maximumSize(1).build();
+    this.durationNanos = unit.toNanos(duration);
+    this.refreshExecutor = refreshExecutor;
+    this.stats = stats;
   }
 
   public T invalidateAndGet() {
     invalidate();
-    return get();
+    if (refreshExecutor == null) return get();
+    return join(load());
+  }
+
+  /**
+   * Invalidates the cache and reloads it. The result is whether the value now cached was loaded
+   * entirely after this call, rather than by a load that was already running or that failed.
+   */
+  public CompletableFuture<Boolean> refresh() {
+    long since;
+    synchronized (this) {
+      invalidate();
+      since = generation;
+    }
+    if (refreshExecutor == null) {
+      get();
+      return CompletableFuture.completedFuture(true);
+    }
+    return load().thenApply(v -> generationStored() >= since);
+  }
+
+  private synchronized long generationStored() {
+    return storedGeneration;
+  }
+
+  private boolean isFresh(T current) {
+    return current != null && (!expiring || System.nanoTime() - loadedAt < durationNanos);
   }
 
   public T get() {
+    T current = value;
+    if (refreshExecutor != null) {
+      if (current == null) {
+        stats.misses().increment();
+        return join(load());
+      }
+      stats.hits().increment();
+      if ((stale || expiring) && System.nanoTime() - refreshAt >= 0) load();
+      return current;
+    }
+
+    if (isFresh(current)) {
+      stats.hits().increment();
+      return current;
+    }
+
+    synchronized (this) {
+      current = value;
+      if (isFresh(current)) {
+        stats.hits().increment();
+        return current;
+      }
+
+      stats.misses().increment();
+      long start = System.nanoTime();
+      try {
+        current = supplier.call();
+      } catch (RuntimeException | Error e) {
+        stats.failures().increment();
+        throw e;
+      } catch (Exception e) {
+        stats.failures().increment();
+        throw new RuntimeException(
+            "Unexpected error loading item into cache: " + e.getMessage(), e);
+      } finally {
+        stats.loadTime().recordSince(start);
+      }
+
+      if (current == null) {
+        invalidate();
+      } else {
+        store(current);
+      }
+      return current;
+    }
+  }
+
+  private synchronized void store(T loaded) {
+    value = loaded;
+    loadedAt = System.nanoTime();
+    // Refresh somewhere between 75% and 90% of the way to expiry, so several caches loaded at
+    // the same moment don't all go back to the backend at once
+    var jitter = 0.75 + ThreadLocalRandom.current().nextDouble(0.15);
+    refreshAt = loadedAt + (long) (durationNanos * jitter);
+    stale = false;
+  }
+
+  /** Starts a background reload, unless one is already running, in which case that one is returned. */
+  private CompletableFuture<T> load() {
+    while (true) {
+      var running = inFlight.get();
+      if (running != null) return running;
+
+      var created = new CompletableFuture<T>();
+      if (!inFlight.compareAndSet(null, created)) continue;
+
+      refreshExecutor.execute(() -> {
+        long start = System.nanoTime();
+        try {
+          for (int attempt = 1; ; attempt++) {
+            long startedAt = generation();
+            start = System.nanoTime();
+            T loaded = supplier.call();
+            stats.loadTime().recordSince(start);
+            if (loaded == null) {
+              retryLater();
+              break;
+            }
+            if (storeIfCurrent(loaded, startedAt, attempt == MAX_LOAD_ATTEMPTS)) break;
+          }
+          inFlight.set(null);
+          created.complete(value);
+        } catch (Throwable e) {
+          stats.loadTime().recordSince(start);
+          stats.failures().increment();
+          retryLater();
+          inFlight.set(null);
+          if (value == null) created.completeExceptionally(e);
+          else created.complete(value);
+        }
+      });
+      return created;
+    }
+  }
+
+  private synchronized long generation() {
+    return generation;
+  }
+
+  /**
+   * Stores a value loaded since {@code startedAt}, unless the cache was updated or invalidated while
+   * it was loading. With {@code lastAttempt}, the value is only stored if nothing is cached at all,
+   * and the cache stays stale so a later {@link #get()} tries again.
+   */
+  private synchronized boolean storeIfCurrent(T loaded, long startedAt, boolean lastAttempt) {
+    if (startedAt == generation) {
+      store(loaded);
+      storedGeneration = startedAt;
+      return true;
+    }
+    if (!lastAttempt) return false;
+
+    if (value == null) value = loaded;
+    stale = true;
+    retryLater();
+    return true;
+  }
+
+  private void retryLater() {
+    refreshAt = System.nanoTime() + Math.min(durationNanos / 10, MAX_RETRY_NANOS);
+  }
+
+  private T join(CompletableFuture<T> future) {
     try {
-      T value = cache.get(KEY, supplier);
-      if (value == null) invalidate();
-      return value;
-    } catch (ExecutionException e) {
+      return future.join();
+    } catch (CompletionException e) {
       final Throwable cause = e.getCause();
 
       // Try to rethrow the actual exception, so it's easier to understand
-      if (cause == null) throw new RuntimeException(e);
+      if (cause == null) throw e;
       else if (cause instanceof RuntimeException) throw (RuntimeException) cause;
       else if (cause instanceof Error) throw (Error) cause;
       else
@@ -41,8 +224,51 @@ public class SingleCache<T> {
     }
   }
 
-  public void invalidate() {
-    cache.invalidateAll();
+  /**
+   * Replaces the cached value with a modified copy, without counting as a reload. Does nothing if
+   * nothing is cached, since the next {@link #get()} would fetch a fresh value anyway.
+   */
+  public synchronized void update(UnaryOperator<T> transform) {
+    generation++;
+    T current = value;
+    if (current != null) value = transform.apply(current);
+  }
+
+  /**
+   * Provides a value to serve before the first load, e.g. one restored from disk. It is considered
+   * stale straight away, so the next {@link #get()} still goes to the supplier for a real one.
+   */
+  public synchronized void seed(T initial) {
+    value = initial;
+    loadedAt = System.nanoTime() - durationNanos;
+    refreshAt = loadedAt;
+    stale = true;
+  }
+
+  /**
+   * Marks the cached value as outdated. In stale-while-revalidate mode the old value keeps being
+   * served until the reload finishes, otherwise the next {@link #get()} reloads synchronously.
+   */
+  public synchronized void invalidate() {
+    generation++;
+    if (refreshExecutor == null) {
+      value = null;
+    } else {
+      stale = true;
+      refreshAt = System.nanoTime();
+    }
+  }
+
+  /**
+   * Turns time-based expiry on or off, for when something else keeps the value up to date. Turning
+   * it back on makes an old value stale immediately.
+   */
+  public void setExpiring(boolean expiring) {
+    this.expiring = expiring;
+  }
+
+  public boolean isExpiring() {
+    return expiring;
   }
 
   @Override
@@ -0,0 +1,65 @@
+package com.vanillarite.faq.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuzzyIndexTest {
+  private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+  private static Topic topic(int id, String name, String... aliases) {
+    return new Topic(id, name, "content", null, List.of(aliases), "global", new Topic.Pos(0, 0), new UUID(0, 0), true, NOW, NOW);
+  }
+
+  private final FuzzyIndex index = new FuzzyIndex(List.of(
+      topic(1, "spawn"),
+      topic(2, "teleport", "tpa"),
+      topic(3, "claims")
+  ));
+
+  private List<FuzzyMatch> search(String query, int maxDistance) {
+    return index.search(FaqSnapshot.fold(query), maxDistance, g -> true, 5);
+  }
+
+  @Test
+  void transposedCharactersAreOneEdit() {
+    assertEquals(1, FuzzyIndex.distance("spwan", "spawn", 2));
+    assertEquals(1, FuzzyIndex.distance("teleprot", "teleport", 2));
+  }
+
+  @Test
+  void findsTransposedNames() {
+    // Swapping two letters breaks four of the query's trigrams, more than any other single edit
+    var spawn = search("spwan", 1);
+    assertEquals(1, spawn.size());
+    assertEquals("spawn", spawn.getFirst().name());
+    assertEquals(1, spawn.getFirst().distance());
+
+    var teleport = search("Teleprot", 1);
+    assertEquals(1, teleport.size());
+    assertEquals(2, teleport.getFirst().topic().id());
+  }
+
+  @Test
+  void findsOtherTypos() {
+    assertEquals("claims", search("clams", 1).getFirst().name());
+    assertEquals("claims", search("claimss", 1).getFirst().name());
+    assertEquals("teleport", search("telepart", 2).getFirst().name());
+  }
+
+  @Test
+  void respectsMaxDistance() {
+    assertTrue(search("spwan", 0).isEmpty());
+    assertTrue(search("something else", 2).isEmpty());
+  }
+
+  @Test
+  void skipsFilteredGroups() {
+    assertTrue(index.search("spwan", 1, g -> false, 5).isEmpty());
+  }
+}
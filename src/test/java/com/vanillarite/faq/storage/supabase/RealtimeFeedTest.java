@@ -0,0 +1,268 @@
+package com.vanillarite.faq.storage.supabase;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.vanillarite.faq.FaqPlugin;
+import com.vanillarite.faq.config.Config;
+import com.vanillarite.faq.config.RealtimeConfig;
+import com.vanillarite.faq.config.SupabaseConfig;
+import com.vanillarite.faq.metrics.Metrics;
+import com.vanillarite.faq.storage.FaqCache;
+import com.vanillarite.faq.storage.Topic;
+import org.bukkit.Server;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.net.URI;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Drives the feed through a stand-in socket: join, change events, and a channel error. */
+class RealtimeFeedTest {
+  private static final String CHANNEL = "realtime:public:faqs";
+  private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+  private static final Instant T1 = Instant.parse("2024-01-02T00:00:00Z");
+
+  private final List<Topic> remote = new ArrayList<>();
+  private final BukkitScheduler scheduler = mock(BukkitScheduler.class);
+  private FaqPlugin plugin;
+  private FaqCache cache;
+  private StandInSocket socket;
+  private RealtimeFeed.Listener listener;
+
+  @BeforeEach
+  void setUp() {
+    plugin = mock(FaqPlugin.class);
+    var server = mock(Server.class);
+    var config = mock(Config.class);
+    var supabase = mock(SupabaseConnection.class);
+    when(plugin.getServer()).thenReturn(server);
+    when(server.getScheduler()).thenReturn(scheduler);
+    when(scheduler.runTaskTimerAsynchronously(eq(plugin), any(Runnable.class), anyLong(), anyLong()))
+        .thenReturn(mock(BukkitTask.class));
+    when(plugin.getLogger()).thenReturn(Logger.getLogger("RealtimeFeedTest"));
+    when(plugin.getSLF4JLogger()).thenReturn(mock(org.slf4j.Logger.class));
+    when(plugin.storageExecutor()).thenReturn(Runnable::run);
+    when(plugin.metrics()).thenReturn(new Metrics());
+    when(plugin.supabase()).thenReturn(supabase);
+    when(plugin.config()).thenReturn(config);
+    when(config.supabase()).thenReturn(new SupabaseConfig(
+        URI.create("http://localhost"), "anon", "auth", 5, 10, 8, new RealtimeConfig(true, 25, 10)));
+    when(supabase.authKey()).thenReturn("auth");
+
+    remote.add(topic(1, "before", T0));
+    cache = new FaqCache(() -> new ArrayList<>(remote), 60, TimeUnit.MINUTES, plugin);
+    cache.get();
+
+    var feed = new RealtimeFeed(plugin, cache);
+    socket = new StandInSocket();
+    listener = feed.new Listener();
+    listener.onOpen(socket);
+  }
+
+  @Test
+  void joinResynchronizesAndStopsExpiring() {
+    var join = socket.last();
+    assertEquals("phx_join", join.get("event").getAsString());
+    assertEquals(CHANNEL, join.get("topic").getAsString());
+
+    // Changed while we weren't subscribed yet
+    remote.set(0, topic(1, "missed", T1));
+    receive(reply(join.get("ref").getAsString(), "ok"));
+
+    assertEquals("missed", cache.get().byId(1).orElseThrow().topic());
+    assertFalse(cache.isExpiring());
+  }
+
+  @Test
+  void refusedJoinKeepsExpiring() {
+    receive(reply(socket.last().get("ref").getAsString(), "error"));
+    assertTrue(cache.isExpiring());
+  }
+
+  @Test
+  void changesAreApplied() {
+    receive(reply(socket.last().get("ref").getAsString(), "ok"));
+
+    receive(change("INSERT", topic(2, "inserted", T1)));
+    assertEquals("inserted", cache.get().byId(2).orElseThrow().topic());
+
+    receive(change("UPDATE", topic(1, "updated", T1)));
+    assertEquals("updated", cache.get().byId(1).orElseThrow().topic());
+
+    var deleted = new JsonObject();
+    deleted.addProperty("id", 2);
+    var data = new JsonObject();
+    data.addProperty("type", "DELETE");
+    data.add("old_record", deleted);
+    receive(postgresChanges(data));
+    assertTrue(cache.get().byId(2).isEmpty());
+  }
+
+  @Test
+  void lateChangesDontRollBack() {
+    receive(reply(socket.last().get("ref").getAsString(), "ok"));
+
+    receive(change("UPDATE", topic(1, "newer", T1)));
+    receive(change("UPDATE", topic(1, "older", T0)));
+    assertEquals("newer", cache.get().byId(1).orElseThrow().topic());
+  }
+
+  @Test
+  void channelErrorPollsAndRejoins() {
+    var firstJoin = socket.last().get("ref").getAsString();
+    receive(reply(firstJoin, "ok"));
+    assertFalse(cache.isExpiring());
+
+    var error = new JsonObject();
+    error.addProperty("topic", CHANNEL);
+    error.addProperty("event", "phx_error");
+    error.add("payload", new JsonObject());
+    error.addProperty("ref", (String) null);
+    receive(error);
+    assertTrue(cache.isExpiring());
+
+    var rejoin = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).runTaskLaterAsynchronously(eq(plugin), rejoin.capture(), anyLong());
+    rejoin.getValue().run();
+
+    var join = socket.last();
+    assertEquals("phx_join", join.get("event").getAsString());
+    assertNotEquals(firstJoin, join.get("ref").getAsString());
+
+    receive(reply(join.get("ref").getAsString(), "ok"));
+    assertFalse(cache.isExpiring());
+  }
+
+  private void receive(JsonObject message) {
+    listener.onText(socket, message.toString(), true);
+  }
+
+  private static JsonObject reply(String ref, String status) {
+    var payload = new JsonObject();
+    payload.addProperty("status", status);
+    payload.add("response", new JsonObject());
+    var message = new JsonObject();
+    message.addProperty("topic", CHANNEL);
+    message.addProperty("event", "phx_reply");
+    message.add("payload", payload);
+    message.addProperty("ref", ref);
+    return message;
+  }
+
+  private static JsonObject change(String type, Topic topic) {
+    var data = new JsonObject();
+    data.addProperty("type", type);
+    data.add("record", record(topic));
+    return postgresChanges(data);
+  }
+
+  private static JsonObject postgresChanges(JsonObject data) {
+    var payload = new JsonObject();
+    payload.add("data", data);
+    var message = new JsonObject();
+    message.addProperty("topic", CHANNEL);
+    message.addProperty("event", "postgres_changes");
+    message.add("payload", payload);
+    message.addProperty("ref", (String) null);
+    return message;
+  }
+
+  private static Topic topic(int id, String name, Instant updatedAt) {
+    return new Topic(id, name, "content", null, List.of(), "global", new Topic.Pos(0, 0), new UUID(0, 0), true, T0, updatedAt);
+  }
+
+  private static JsonObject record(Topic t) {
+    var json = new JsonObject();
+    json.addProperty("id", t.id());
+    json.addProperty("topic", t.topic());
+    json.addProperty("content", t.content());
+    json.add("preface", null);
+    json.add("alias", new JsonArray());
+    json.addProperty("group", t.group());
+    json.add("pos", t.pos().toJson());
+    json.addProperty("author", t.author().toString());
+    json.addProperty("active", t.active());
+    json.addProperty("created_at", t.createdAt().toString());
+    json.addProperty("updated_at", t.updatedAt().toString());
+    return json;
+  }
+
+  /** Records what the feed sends instead of talking to a server. */
+  private static final class StandInSocket implements WebSocket {
+    private final List<String> sent = new ArrayList<>();
+
+    JsonObject last() {
+      return JsonParser.parseString(sent.getLast()).getAsJsonObject();
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> sendText(CharSequence data, boolean last) {
+      sent.add(data.toString());
+      return CompletableFuture.completedFuture(this);
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> sendBinary(ByteBuffer data, boolean last) {
+      return CompletableFuture.completedFuture(this);
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> sendPing(ByteBuffer message) {
+      return CompletableFuture.completedFuture(this);
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> sendPong(ByteBuffer message) {
+      return CompletableFuture.completedFuture(this);
+    }
+
+    @Override
+    public CompletableFuture<WebSocket> sendClose(int statusCode, String reason) {
+      return CompletableFuture.completedFuture(this);
+    }
+
+    @Override
+    public void request(long n) {}
+
+    @Override
+    public String getSubprotocol() {
+      return "";
+    }
+
+    @Override
+    public boolean isOutputClosed() {
+      return false;
+    }
+
+    @Override
+    public boolean isInputClosed() {
+      return false;
+    }
+
+    @Override
+    public void abort() {}
+  }
+}